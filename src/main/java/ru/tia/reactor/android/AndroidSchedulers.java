@@ -2,6 +2,7 @@ package ru.tia.reactor.android;
 
 import android.os.Looper;
 import android.os.Message;
+import reactor.core.Disposable;
 import reactor.core.Exceptions;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
@@ -13,16 +14,39 @@ import reactor.util.annotation.Nullable;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
+import java.time.Duration;
 import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 /** Android-specific Schedulers. */
 public enum AndroidSchedulers {
     ;
 
-    private static final Logger LOGGER = Loggers.getLogger(Schedulers.class);
+    // Holders defer the reflection and the logger set up off the app startup path until the first error
+    private static final class LoggerHolder {
+        static final Logger LOGGER = Loggers.getLogger(Schedulers.class);
+    }
+
+    private static final class HandleErrorHolder {
+        static final MethodHandle handleErrorMh = getHandleErrorMh();
+    }
+
+    @Nullable
+    private static volatile BiConsumer<? super Scheduler, ? super Long> onDeadlineMissedHook;
 
-    private static final MethodHandle handleErrorMh = getHandleErrorMh();
+
+    /**
+     * Max number of tasks listed per worker by {@link #dumpPendingTasks(Scheduler)}.
+     * <p>
+     * Associated system parameter {@code android.scheduler.dump-max-tasks}, int, default {@code 50}.
+     */
+    private static final int DUMP_MAX_TASKS_PER_WORKER = Integer.getInteger("android.scheduler.dump-max-tasks", 50);
+
+    /** Threshold of blocking detection, non-positive if the detection is disabled. */
+    static volatile long blockingThresholdMs;
 
     private static final class MainHolder {
         static final CachedScheduler DEFAULT;
@@ -100,7 +124,247 @@ public enum AndroidSchedulers {
     @NonNull
     public static Scheduler from(@NonNull Looper looper, boolean async) {
         Objects.requireNonNull(looper, "looper == null");
-        return new EventLoopScheduler(looper, async);
+        return new EventLoopScheduler(new HandlerMessageLoop(looper, async));
+    }
+
+    /**
+     * A {@link Scheduler} which executes actions on {@code looper}.
+     * <p>
+     * With batched handoff, tasks scheduled without a delay are put to a lock-free queue of the scheduler and are run
+     * in batches, one looper message per batch, instead of one message per task. It reduces the number of messages
+     * when signals hop between loopers, e.g. {@code publishOn} from a {@code HandlerThread} to the main thread.
+     * Tasks scheduled from the same thread keep their order.
+     * <p>
+     * Schedulers created by other methods use batched handoff if the system parameter
+     * {@code android.scheduler.batch-handoff} is true.
+     *
+     * @param async        if true, the scheduler will use async messaging to avoid VSYNC
+     *                     locking.
+     * @param batchHandoff if true, tasks without a delay are handed over to the looper in batches
+     * @see Message#setAsynchronous(boolean)
+     */
+    @NonNull
+    public static Scheduler from(@NonNull Looper looper, boolean async, boolean batchHandoff) {
+        Objects.requireNonNull(looper, "looper == null");
+        return new EventLoopScheduler(new HandlerMessageLoop(looper, async), batchHandoff);
+    }
+
+    /**
+     * Returns a {@link ScheduledExecutorService} that runs tasks on the looper of {@code scheduler}.
+     * <p>
+     * The executor schedules tasks on a dedicated {@link Scheduler.Worker worker} of the scheduler, so they share
+     * the looper queue and task tracking with Reactor tasks. {@link ScheduledExecutorService#shutdown()} disposes
+     * the worker gracefully and {@link ScheduledExecutorService#shutdownNow()} cancels its pending tasks, the
+     * scheduler itself stays usable.
+     * <p>
+     * NOTICE: Blocking methods of returned futures must not be called on the looper thread.
+     *
+     * @param scheduler a scheduler created by this class
+     * @throws IllegalArgumentException if {@code scheduler} is not created by this class
+     */
+    @NonNull
+    public static ScheduledExecutorService toExecutorService(@NonNull Scheduler scheduler) {
+        Objects.requireNonNull(scheduler, "scheduler == null");
+        Scheduler s = unwrap(scheduler);
+        if (!(s instanceof EventLoopScheduler)) {
+            throw new IllegalArgumentException("Not a looper scheduler: " + scheduler);
+        }
+        return new LooperExecutorService((EventLoopScheduler) s);
+    }
+
+    /**
+     * Returns a view of {@code scheduler} that may run delayed tasks up to {@code tolerance} late.
+     * <p>
+     * A task scheduled with a delay {@code d} is run at some time in {@code [d, d + tolerance]}, together with other
+     * tolerant tasks of the looper whose windows overlap, in one looper wakeup. It suits timers that don't need
+     * millisecond precision, like {@code timeout}, debounce or retry backoff, and saves CPU and battery when there
+     * are many of them. Tasks without a delay and periodic tasks are scheduled as usual. A view of a
+     * {@link #withDeadline(Scheduler, Duration) deadline} view keeps the deadline.
+     * <p>
+     * The view shares tasks, workers and the lifecycle with {@code scheduler}: disposing the view disposes
+     * {@code scheduler}. Schedulers not created by this class are returned as is.
+     *
+     * @param scheduler the scheduler to run tasks on
+     * @param tolerance how late delayed tasks may be run
+     * @return the scheduler with the delay tolerance
+     */
+    @NonNull
+    public static Scheduler withDelayTolerance(@NonNull Scheduler scheduler, @NonNull Duration tolerance) {
+        Objects.requireNonNull(scheduler, "scheduler == null");
+        Objects.requireNonNull(tolerance, "tolerance == null");
+        if (tolerance.isNegative()) {
+            throw new IllegalArgumentException("tolerance < 0: " + tolerance);
+        }
+        Scheduler s = unwrap(scheduler);
+        if (!(s instanceof EventLoopScheduler)) {
+            return scheduler;
+        }
+        return LooperSchedulerView.withDelayTolerance(scheduler, (EventLoopScheduler) s, tolerance.toMillis());
+    }
+
+    /**
+     * Returns a view of {@code scheduler} that schedules immediate tasks with a deadline, as
+     * {@link #scheduleWithDeadline(Scheduler, Runnable, long, TimeUnit)} does. Unlike that method it applies to
+     * workers of the view too, so it works with operators like {@code publishOn}:
+     * <pre>flux.publishOn(AndroidSchedulers.withDeadline(AndroidSchedulers.mainThread(), Duration.ofMillis(16)))</pre>
+     * Delayed and periodic tasks are scheduled as usual. A view of a
+     * {@link #withDelayTolerance(Scheduler, Duration) delay tolerant} view keeps the tolerance.
+     * <p>
+     * The view shares tasks, workers and the lifecycle with {@code scheduler}: disposing the view disposes
+     * {@code scheduler}. Schedulers not created by this class are returned as is.
+     *
+     * @param scheduler the scheduler to run tasks on
+     * @param deadline  the time, relative to scheduling, by which immediate tasks should be run
+     * @return the scheduler with the deadline
+     */
+    @NonNull
+    public static Scheduler withDeadline(@NonNull Scheduler scheduler, @NonNull Duration deadline) {
+        Objects.requireNonNull(scheduler, "scheduler == null");
+        Objects.requireNonNull(deadline, "deadline == null");
+        if (deadline.isNegative()) {
+            throw new IllegalArgumentException("deadline < 0: " + deadline);
+        }
+        Scheduler s = unwrap(scheduler);
+        if (!(s instanceof EventLoopScheduler)) {
+            return scheduler;
+        }
+        return LooperSchedulerView.withDeadline(scheduler, (EventLoopScheduler) s, deadline.toMillis());
+    }
+
+    /**
+     * Dumps pending tasks of the looper scheduler, e.g. for a bug report when the looper falls behind.
+     * <p>
+     * For every worker lists its pending tasks with the source runnable type, age since scheduling, run time relative
+     * to now and whether the task is periodic. Workers are named by the scheduler and an id, which is renewed when a
+     * pooled worker is reused, so every subscription shows up separately. The snapshot is weakly consistent and is taken without stopping the
+     * looper. The same data is available through {@link reactor.core.Scannable#inners() inners} of workers and
+     * {@link LooperAttr}.
+     *
+     * @param scheduler the scheduler created by this class
+     * @return the text dump
+     * @throws IllegalArgumentException if the scheduler is not created by this class
+     */
+    @NonNull
+    public static String dumpPendingTasks(@NonNull Scheduler scheduler) {
+        Objects.requireNonNull(scheduler, "scheduler == null");
+        Scheduler s = unwrap(scheduler);
+        if (!(s instanceof EventLoopScheduler)) {
+            throw new IllegalArgumentException("Not a looper scheduler: " + scheduler);
+        }
+        return ((EventLoopScheduler) s).dumpPendingTasks(DUMP_MAX_TASKS_PER_WORKER);
+    }
+
+    /**
+     * Schedules the task on {@code scheduler} with a deadline.
+     * <p>
+     * For schedulers of this class pending deadline tasks are run in earliest-deadline-first order. A deadline task
+     * is posted behind ordinary tasks of the looper's queue, unless their backlog would make it miss the deadline,
+     * then it is put before them. A task that is run after its deadline is reported to the hook
+     * set by {@link #onDeadlineMissed(BiConsumer)} and counted by {@link #deadlineMisses(Scheduler)}.
+     * <p>
+     * Other schedulers just {@link Scheduler#schedule(Runnable) schedule} the task.
+     *
+     * @param scheduler the scheduler to run the task on
+     * @param task      the task to schedule
+     * @param deadline  the time, relative to now, by which the task should be run
+     * @param unit      the unit of measure of the deadline amount
+     * @return the Disposable that let's one cancel this particular task.
+     */
+    @NonNull
+    public static Disposable scheduleWithDeadline(@NonNull Scheduler scheduler, @NonNull Runnable task,
+                                                  long deadline, @NonNull TimeUnit unit) {
+        Objects.requireNonNull(scheduler, "scheduler == null");
+        Scheduler s = unwrap(scheduler);
+        if (s instanceof EventLoopScheduler) {
+            return ((EventLoopScheduler) s).scheduleWithDeadline(task, deadline, unit);
+        }
+        return scheduler.schedule(task);
+    }
+
+    /**
+     * Returns the number of tasks scheduled by {@link #scheduleWithDeadline(Scheduler, Runnable, long, TimeUnit)}
+     * that have been run after their deadline.
+     *
+     * @return the number of deadline misses or 0 if {@code scheduler} is not created by this class
+     */
+    public static long deadlineMisses(@NonNull Scheduler scheduler) {
+        Scheduler s = unwrap(scheduler);
+        if (s instanceof EventLoopScheduler) {
+            return ((EventLoopScheduler) s).deadlineMisses();
+        }
+        return 0;
+    }
+
+    /**
+     * Set a hook that is called on the looper thread before a task that has missed its deadline is run.
+     * The hook receives the scheduler and the lateness in milliseconds.
+     *
+     * @param hook the hook to set
+     * @see #scheduleWithDeadline(Scheduler, Runnable, long, TimeUnit)
+     */
+    public static void onDeadlineMissed(@NonNull BiConsumer<? super Scheduler, ? super Long> hook) {
+        Objects.requireNonNull(hook, "hook == null");
+        onDeadlineMissedHook = hook;
+    }
+
+    /**
+     * Reset the hook set by {@link #onDeadlineMissed(BiConsumer)}.
+     */
+    public static void resetOnDeadlineMissed() {
+        onDeadlineMissedHook = null;
+    }
+
+    /**
+     * Debug mode: measure how long each task of schedulers of this class blocks its looper thread and log a warning
+     * when a task runs longer than {@code threshold}. The warning names the type of the scheduled runnable, as
+     * {@link #dumpPendingTasks(Scheduler)} does, rather than its {@link Schedulers#onScheduleHook onSchedule} wrapper.
+     * <p>
+     * Reactor's blocking operators fail fast only on {@link NonBlockingHandlerThread} loopers, the detection covers
+     * the main thread and other loopers. Stalls of non-blocking threads are logged as errors.
+     *
+     * @param threshold the max duration of a task that is not reported
+     * @param unit      the unit of measure of the threshold
+     */
+    public static void enableBlockingDetection(long threshold, @NonNull TimeUnit unit) {
+        blockingThresholdMs = Math.max(1, unit.toMillis(threshold));
+    }
+
+    /**
+     * Disable the debug mode set by {@link #enableBlockingDetection(long, TimeUnit)}.
+     */
+    public static void disableBlockingDetection() {
+        blockingThresholdMs = 0;
+    }
+
+    /**
+     * Emit {@link android.os.Trace} sections for every task of schedulers of this class.
+     *
+     * @see #enableTracing(int)
+     */
+    public static void enableTracing() {
+        enableTracing(1);
+    }
+
+    /**
+     * Emit {@link android.os.Trace} sections for every {@code sampleRate}-th task of schedulers of this class.
+     * <p>
+     * A traced task gets a section around its run, named after the scheduler and the type of the scheduled runnable
+     * (e.g. {@code eventLoop(main) FluxPublishOn$PublishOnSubscriber}). On Android 10 and above it also gets an
+     * async section of the same name that links the schedule call to the run, so the queueing delay is visible in
+     * Perfetto.
+     *
+     * @param sampleRate trace every n-th task, 1 traces all tasks
+     */
+    public static void enableTracing(int sampleRate) {
+        if (sampleRate < 1) throw new IllegalArgumentException("sampleRate must be positive, was " + sampleRate);
+        TaskTracer.sampleRate = sampleRate;
+    }
+
+    /**
+     * Disable tracing enabled by {@link #enableTracing(int)}.
+     */
+    public static void disableTracing() {
+        TaskTracer.sampleRate = 0;
     }
 
     /**
@@ -133,7 +397,42 @@ public enum AndroidSchedulers {
         MainHolder.DEFAULT._dispose();
     }
 
+    static void onDeadlineMissed(Scheduler scheduler, long lateMs) {
+        BiConsumer<? super Scheduler, ? super Long> hook = onDeadlineMissedHook;
+        if (hook != null) {
+            try {
+                hook.accept(scheduler, lateMs);
+            } catch (Throwable t) {
+                handleError(t);
+            }
+        }
+    }
+
+    static void onLooperBlocked(Class<?> taskType, long durationMs) {
+        String threadName = Thread.currentThread().getName();
+        // NonBlockingHandlerThread: the task has broken the thread's contract, not just stalled the looper
+        if (Schedulers.isInNonBlockingThread()) {
+            LoggerHolder.LOGGER.error("Non-blocking thread {} was blocked for {} ms by {}", threadName, durationMs, taskType.getName());
+        } else {
+            LoggerHolder.LOGGER.warn("Looper thread {} was blocked for {} ms by {}", threadName, durationMs, taskType.getName());
+        }
+    }
+
+    private static Scheduler unwrap(Scheduler scheduler) {
+        if (scheduler instanceof CachedScheduler) {
+            return ((CachedScheduler) scheduler).get();
+        }
+        if (scheduler instanceof VirtualTimeLooperScheduler) {
+            return ((VirtualTimeLooperScheduler) scheduler).delegate;
+        }
+        if (scheduler instanceof LooperSchedulerView) {
+            return ((LooperSchedulerView) scheduler).scheduler;
+        }
+        return scheduler;
+    }
+
     static void handleError(Throwable ex) {
+        MethodHandle handleErrorMh = HandleErrorHolder.handleErrorMh;
         boolean doFallback = (handleErrorMh == null);
         if (!doFallback) {
             try {
@@ -149,7 +448,7 @@ public enum AndroidSchedulers {
             if (x != null) {
                 x.uncaughtException(thread, t);
             } else {
-                LOGGER.error("Scheduler worker failed with an uncaught exception", t);
+                LoggerHolder.LOGGER.error("Scheduler worker failed with an uncaught exception", t);
             }
         }
 
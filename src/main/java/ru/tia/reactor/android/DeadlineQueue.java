@@ -0,0 +1,121 @@
+package ru.tia.reactor.android;
+
+import reactor.util.annotation.NonNull;
+
+import java.util.PriorityQueue;
+
+/**
+ * Earliest-deadline-first queue of tasks of an {@link EventLoopScheduler}.
+ * <p>
+ * Every offered task posts one drain message, and each drain message runs the pending task with the earliest
+ * deadline. The message is posted at the normal time, behind the FIFO backlog of the looper, unless the backlog
+ * would make the task miss its deadline. Only then it is posted to the front of the queue. The backlog latency is
+ * estimated from the lag of drain messages posted at the normal time and decays while messages are posted to the
+ * front, so deadline tasks don't overtake input and frame messages of a looper that keeps up.
+ */
+final class DeadlineQueue {
+
+    /**
+     * A deadline task overtakes the looper backlog if its deadline is closer than the estimated latency of the
+     * backlog plus this margin, in milliseconds.
+     * <p>
+     * Associated system parameter {@code android.scheduler.deadline-margin}, long, default {@code 8}.
+     */
+    static final long MARGIN_MS = Long.getLong("android.scheduler.deadline-margin", 8);
+
+    @NonNull
+    private final MessageLoop loop;
+    @NonNull
+    private final EventLoopScheduler scheduler;
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+    private long sequence; // guarded by queue
+    private volatile long lagMs; // moving average, written from the looper thread only
+
+    DeadlineQueue(@NonNull MessageLoop loop, @NonNull EventLoopScheduler scheduler) {
+        this.loop = loop;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @param deadlineMs the deadline in {@link MessageLoop#uptimeMillis()} time base
+     */
+    void offer(@NonNull SchedulerTask task, long deadlineMs) {
+        long nowMs = loop.uptimeMillis();
+        boolean urgent = deadlineMs - nowMs <= lagMs + MARGIN_MS;
+        Entry entry;
+        synchronized (queue) {
+            entry = new Entry(task, deadlineMs, sequence++, nowMs, urgent);
+            queue.add(entry);
+        }
+        if (urgent) {
+            loop.sendAtFrontOfQueue(entry);
+        } else {
+            loop.sendAtTime(entry, this /* token */, nowMs);
+        }
+    }
+
+    /**
+     * @return the estimated latency of the looper backlog in milliseconds
+     */
+    long lagMs() {
+        return lagMs;
+    }
+
+    private void drain(Entry message) {
+        long nowMs = loop.uptimeMillis();
+        long lag = lagMs;
+        if (message.urgent) {
+            // A message at the front of the queue doesn't measure the backlog. Decay the estimate, so one stall
+            // doesn't keep all later tasks jumping the queue.
+            lagMs = lag * 3 / 4;
+        } else {
+            lagMs = lag + (nowMs - message.postedAtMs - lag) / 4;
+        }
+        Entry entry;
+        synchronized (queue) {
+            do {
+                entry = queue.poll();
+            } while (entry != null && entry.task.isDisposed());
+        }
+        if (entry == null) {
+            return;
+        }
+        long lateMs = nowMs - entry.deadlineMs;
+        if (lateMs > 0) {
+            scheduler.onDeadlineMissed(lateMs);
+        }
+        entry.task.run();
+    }
+
+    /**
+     * A pending task and its drain message. The message runs the task with the earliest deadline, not necessarily
+     * its own.
+     */
+    private final class Entry implements Comparable<Entry>, Runnable {
+        final SchedulerTask task;
+        final long deadlineMs;
+        final long sequence;
+        final long postedAtMs;
+        final boolean urgent; // posted to the front of the queue
+
+        Entry(SchedulerTask task, long deadlineMs, long sequence, long postedAtMs, boolean urgent) {
+            this.task = task;
+            this.deadlineMs = deadlineMs;
+            this.sequence = sequence;
+            this.postedAtMs = postedAtMs;
+            this.urgent = urgent;
+        }
+
+        @Override
+        public void run() {
+            drain(this);
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            int c = Long.compare(deadlineMs, o.deadlineMs);
+            // FIFO for equal deadlines
+            return c != 0 ? c : Long.compare(sequence, o.sequence);
+        }
+    }
+}
@@ -14,14 +14,17 @@ import java.util.concurrent.TimeUnit;
  */
 class DisposeAwaiterRunnable<T> implements Runnable {
 
-    static final ScheduledExecutorService TRANSITION_AWAIT_POOL;
+    /** The pool is built on the first {@link #awaitInPool} rather than on class loading. */
+    private static final class PoolHolder {
+        static final ScheduledExecutorService TRANSITION_AWAIT_POOL;
 
-    static {
-        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(0);
-        executor.setKeepAliveTime(10, TimeUnit.SECONDS);
-        executor.allowCoreThreadTimeOut(true);
-        executor.setMaximumPoolSize(Schedulers.DEFAULT_POOL_SIZE);
-        TRANSITION_AWAIT_POOL = executor;
+        static {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(0);
+            executor.setKeepAliveTime(10, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+            executor.setMaximumPoolSize(Schedulers.DEFAULT_POOL_SIZE);
+            TRANSITION_AWAIT_POOL = executor;
+        }
     }
 
     private final DisposeAwaiter<T> awaiter;
@@ -33,7 +36,7 @@ class DisposeAwaiterRunnable<T> implements Runnable {
 
     static <R> void awaitInPool(DisposeAwaiter<R> awaiter, R initial, FluxSink<Void> sink, int awaitMs) {
         DisposeAwaiterRunnable<R> poller = new DisposeAwaiterRunnable<>(awaiter, initial, sink, awaitMs);
-        TRANSITION_AWAIT_POOL.submit(poller);
+        PoolHolder.TRANSITION_AWAIT_POOL.submit(poller);
     }
 
     DisposeAwaiterRunnable(DisposeAwaiter<T> awaiter, T initial, FluxSink<Void> sink, int awaitMs) {
@@ -64,7 +67,7 @@ class DisposeAwaiterRunnable<T> implements Runnable {
                     return;
                 }
                 // trampoline
-                TRANSITION_AWAIT_POOL.submit(this);
+                PoolHolder.TRANSITION_AWAIT_POOL.submit(this);
             }
         }
         catch (InterruptedException e) {
@@ -1,37 +1,90 @@
 package ru.tia.reactor.android;
 
-import android.os.Handler;
-import android.os.Looper;
 import reactor.core.Disposable;
-import reactor.core.Disposables;
 import reactor.core.Exceptions;
 import reactor.core.Scannable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
 import reactor.util.annotation.NonNull;
+import reactor.util.annotation.Nullable;
 
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.stream.Stream;
 
 final class EventLoopScheduler implements Scheduler, Scannable, WorkerDelete<EventLoopWorker>
         , DisposeAwaiter<Set<EventLoopWorker>> {
 
     private static final ShutdownWorker SHUTDOWN = new ShutdownWorker();
-    private final Handler handler;
-    private final boolean async;
-    private final Set<EventLoopWorker> workers = new HashSet<>();
 
-    private volatile Worker worker;
+    /**
+     * Max number of disposed workers kept for reuse by {@link #createWorker()}.
+     * <p>
+     * Associated system parameter {@code android.scheduler.worker-pool-size}, int, default {@code 16}.
+     * Non-positive value disables the pooling.
+     */
+    static final int WORKER_POOL_SIZE = Integer.getInteger("android.scheduler.worker-pool-size", 16);
+
+    /**
+     * Default of batched handoff of immediate tasks, see {@link HandoffQueue}.
+     * <p>
+     * Associated system parameter {@code android.scheduler.batch-handoff}, boolean, default {@code false}.
+     */
+    static final boolean BATCH_HANDOFF = Boolean.getBoolean("android.scheduler.batch-handoff");
+    private final MessageLoop loop;
+    private final boolean batchHandoff;
+    private final Set<EventLoopWorker> workers = ConcurrentHashMap.newKeySet();
+    @Nullable
+    private volatile Queue<EventLoopWorker> workerPool; // created on first recycling
+
+    @Nullable
+    private volatile Worker worker; // created on first use
+    private static final AtomicReferenceFieldUpdater<EventLoopScheduler, Worker> WORKER =
+            AtomicReferenceFieldUpdater.newUpdater(EventLoopScheduler.class, Worker.class, "worker");
+    private volatile DeadlineQueue deadlineQueue;
+    private volatile HandoffQueue handoffQueue;
+    private volatile TimerCoalescer timerCoalescer;
+    private volatile TaskTracer tracer;
+    private volatile long deadlineMisses; // written from the looper thread only
+    private final AtomicInteger workerIds = new AtomicInteger();
+
+    EventLoopScheduler(MessageLoop loop) {
+        this(loop, BATCH_HANDOFF);
+    }
+
+    /**
+     * @param batchHandoff if true, immediate tasks are handed over to the looper in batches by {@link HandoffQueue}
+     */
+    EventLoopScheduler(MessageLoop loop, boolean batchHandoff) {
+        this.loop = loop;
+        this.batchHandoff = batchHandoff;
+    }
 
-    EventLoopScheduler(Looper looper, boolean async) {
-        this.handler = new Handler(looper);
-        this.async = async;
-        EventLoopWorker eventLoopWorker = createWorker();
-        this.worker = eventLoopWorker;
-        workers.add(eventLoopWorker);  //всегда держится 1 внутренний worker до EventLoopScheduler#dispose
+    /**
+     * @return the internal worker for the scheduler-level tasks
+     */
+    @NonNull
+    private Worker worker() {
+        Worker w = worker;
+        if (w == null) {
+            EventLoopWorker eventLoopWorker = new EventLoopWorker(loop, this);
+            // registered before publishing, so a racing dispose() disposes it
+            workers.add(eventLoopWorker);  //всегда держится 1 внутренний worker до EventLoopScheduler#dispose
+            if (WORKER.compareAndSet(this, null, eventLoopWorker)) {
+                return eventLoopWorker;
+            }
+            workers.remove(eventLoopWorker);
+            w = worker;
+        }
+        return w;
     }
 
     @Override
@@ -42,13 +95,26 @@ final class EventLoopScheduler implements Scheduler, Scannable, WorkerDelete<Eve
     @Override
     @NonNull
     public Disposable schedule(@NonNull Runnable task) {
-        return worker.schedule(task, 0, TimeUnit.MILLISECONDS);
+        return worker().schedule(task, 0, TimeUnit.MILLISECONDS);
     }
 
     @Override
     @NonNull
     public Disposable schedule(@NonNull Runnable run, long delay, @NonNull TimeUnit unit) {
-        return worker.schedule(run, delay, unit);
+        return worker().schedule(run, delay, unit);
+    }
+
+    /**
+     * @param toleranceMs how late the task may be run, see {@link TimerCoalescer}
+     */
+    @NonNull
+    Disposable schedule(@NonNull Runnable run, long delay, @NonNull TimeUnit unit, long toleranceMs) {
+        Worker w = worker();
+        if (w instanceof EventLoopWorker) {
+            EventLoopWorker ew = (EventLoopWorker) w;
+            return ew.scheduleInternal(run, delay, unit, true, ew.generation(), toleranceMs);
+        }
+        return w.schedule(run, delay, unit);
     }
 
 
@@ -77,21 +143,152 @@ final class EventLoopScheduler implements Scheduler, Scannable, WorkerDelete<Eve
     @Override
     @NonNull
     public Disposable schedulePeriodically(@NonNull Runnable task, long initialDelay, long period, @NonNull TimeUnit unit) {
-        return worker.schedulePeriodically(task, initialDelay, period, unit);
+        return worker().schedulePeriodically(task, initialDelay, period, unit);
+    }
+
+    /**
+     * Schedules the task by {@link DeadlineQueue}: pending deadline tasks are run in earliest-deadline-first order
+     * and overtake ordinary tasks of the looper only if those would make them miss the deadline.
+     *
+     * @param task     the task to schedule
+     * @param deadline the time, relative to now, by which the task should be run
+     * @param unit     the unit of measure of the deadline amount
+     * @return the Disposable that let's one cancel this particular task.
+     */
+    @NonNull
+    Disposable scheduleWithDeadline(@NonNull Runnable task, long deadline, @NonNull TimeUnit unit) {
+        Worker w = worker();
+        if (!(w instanceof EventLoopWorker)) throw Exceptions.failWithRejected();
+        return ((EventLoopWorker) w).scheduleWithDeadline(task, deadline, unit);
+    }
+
+    @NonNull
+    DeadlineQueue deadlineQueue() {
+        DeadlineQueue q = deadlineQueue;
+        if (q == null) {
+            synchronized (this) {
+                q = deadlineQueue;
+                if (q == null) {
+                    q = new DeadlineQueue(loop, this);
+                    deadlineQueue = q;
+                }
+            }
+        }
+        return q;
+    }
+
+    /**
+     * @return the queue for immediate tasks, or null if they are posted to the looper one by one
+     */
+    @Nullable
+    HandoffQueue handoffQueue() {
+        if (!batchHandoff) {
+            return null;
+        }
+        HandoffQueue q = handoffQueue;
+        if (q == null) {
+            synchronized (this) {
+                q = handoffQueue;
+                if (q == null) {
+                    q = new HandoffQueue(loop);
+                    handoffQueue = q;
+                }
+            }
+        }
+        return q;
+    }
+
+    @NonNull
+    TimerCoalescer timerCoalescer() {
+        TimerCoalescer c = timerCoalescer;
+        if (c == null) {
+            synchronized (this) {
+                c = timerCoalescer;
+                if (c == null) {
+                    c = new TimerCoalescer(loop);
+                    timerCoalescer = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    @NonNull
+    TaskTracer tracer() {
+        TaskTracer t = tracer;
+        if (t == null) {
+            // benign race: a duplicate only loses its cached names
+            t = new TaskTracer(toString());
+            tracer = t;
+        }
+        return t;
+    }
+
+    void onDeadlineMissed(long lateMs) {
+        deadlineMisses++;
+        AndroidSchedulers.onDeadlineMissed(this, lateMs);
+    }
+
+    /**
+     * @return a new id for a worker, unique within this scheduler
+     */
+    int nextWorkerId() {
+        return workerIds.incrementAndGet();
+    }
+
+    /**
+     * @return the number of deadline tasks that have been run after their deadline
+     */
+    long deadlineMisses() {
+        return deadlineMisses;
     }
 
     @Override
     @NonNull
-    public EventLoopWorker createWorker() {
-        if (isDisposed()) throw Exceptions.failWithRejected();
-        EventLoopWorker newWorker = new EventLoopWorker(handler, this, async);
+    public Worker createWorker() {
+        return createWorker(0);
+    }
+
+    /**
+     * @param toleranceMs how late delayed tasks of the worker may be run, see {@link TimerCoalescer}
+     */
+    @NonNull
+    Worker createWorker(long toleranceMs) {
+        return createWorker(toleranceMs, -1);
+    }
+
+    /**
+     * @param toleranceMs how late delayed tasks of the worker may be run, see {@link TimerCoalescer}
+     * @param deadlineMs  the deadline of immediate tasks of the worker, see {@link DeadlineQueue}. Negative value
+     *                    means no deadline.
+     */
+    @NonNull
+    Worker createWorker(long toleranceMs, long deadlineMs) {
+        if (worker == SHUTDOWN) throw Exceptions.failWithRejected();
+        Queue<EventLoopWorker> pool = workerPool;
+        EventLoopWorker newWorker = pool != null ? pool.poll() : null;
+        if (newWorker == null) {
+            newWorker = new EventLoopWorker(loop, this);
+        }
         workers.add(newWorker);
-        return newWorker;
+        // Re-check in case we were racing a call to dispose() that has missed the new worker
+        if (worker == SHUTDOWN) {
+            newWorker.dispose();
+            throw Exceptions.failWithRejected();
+        }
+        return new PooledWorker(newWorker, toleranceMs, deadlineMs);
     }
 
     @Override
     public long now(@NonNull TimeUnit unit) {
-        return Scheduler.super.now(unit);
+        return loop.now(unit);
+    }
+
+    /**
+     * @return the time base of the looper in milliseconds, see {@link MessageLoop#uptimeMillis()}
+     */
+    long uptimeMillis() {
+        return loop.uptimeMillis();
     }
 
     @Override
@@ -108,9 +305,22 @@ final class EventLoopScheduler implements Scheduler, Scannable, WorkerDelete<Eve
     @Override
     public void dispose() {
         worker = SHUTDOWN;
-        Composite composite = Disposables.composite(workers);
-        workers.clear();
-        composite.dispose();
+        // A disposed worker removes itself from workers
+        for (EventLoopWorker w : workers) {
+            w.dispose();
+        }
+        Queue<EventLoopWorker> pool = workerPool;
+        if (pool != null) {
+            pool.clear();
+        }
+        TimerCoalescer coalescer = timerCoalescer;
+        if (coalescer != null) {
+            coalescer.clear();
+        }
+        HandoffQueue handoff = handoffQueue;
+        if (handoff != null) {
+            handoff.clear();
+        }
     }
 
     /**
@@ -149,7 +359,8 @@ final class EventLoopScheduler implements Scheduler, Scannable, WorkerDelete<Eve
     @Override
     public boolean await(Set<EventLoopWorker> workers, long timeout, TimeUnit timeUnit) throws InterruptedException {
 
-        long startMs = now(TimeUnit.MILLISECONDS);
+        // Real time, as the loop's clock may be virtual
+        long startMs = System.currentTimeMillis();
         long timeoutMs = timeUnit.toMillis(timeout);
 
         boolean hasTasks;
@@ -163,7 +374,7 @@ final class EventLoopScheduler implements Scheduler, Scannable, WorkerDelete<Eve
                     break;
                 }
             }
-            durationMs = now(TimeUnit.MILLISECONDS) - startMs;
+            durationMs = System.currentTimeMillis() - startMs;
             long toSleepMs = (timeoutMs - durationMs) / 10;
             toSleepMs = Math.min(toSleepMs, 50);
             if (hasTasks && toSleepMs > 0) {
@@ -183,12 +394,32 @@ final class EventLoopScheduler implements Scheduler, Scannable, WorkerDelete<Eve
     @NonNull
     public String toString() {
 
-        return "eventLoop(" + handler.getLooper().getThread().getName() + ")";
+        return "eventLoop(" + loop.name() + ")";
     }
 
     @Override
     public void delete(EventLoopWorker r) {
         workers.remove(r);
+        Worker w = worker;
+        // The internal worker is never reused, nor workers of a disposed scheduler
+        if (WORKER_POOL_SIZE > 0 && r != w && w != SHUTDOWN) {
+            r.recycle();
+            workerPool().offer(r);
+        }
+    }
+
+    private Queue<EventLoopWorker> workerPool() {
+        Queue<EventLoopWorker> pool = workerPool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = workerPool;
+                if (pool == null) {
+                    pool = new ArrayBlockingQueue<>(WORKER_POOL_SIZE);
+                    workerPool = pool;
+                }
+            }
+        }
+        return pool;
     }
 
     @Override
@@ -196,4 +427,37 @@ final class EventLoopScheduler implements Scheduler, Scannable, WorkerDelete<Eve
     public Stream<? extends Scannable> inners() {
         return workers.stream();         
     }
+
+    /**
+     * Human-readable list of pending tasks of every worker, built from {@link #inners()} without stopping the looper.
+     *
+     * @param maxTasksPerWorker max number of tasks listed for a worker, the rest are only counted
+     */
+    @NonNull
+    String dumpPendingTasks(int maxTasksPerWorker) {
+        long nowMs = loop.uptimeMillis();
+        StringBuilder sb = new StringBuilder(this.toString()).append(": ").append(workers.size()).append(" workers\n");
+        EventLoopWorker[] sorted = workers.toArray(new EventLoopWorker[0]);
+        Arrays.sort(sorted, Comparator.comparingInt(EventLoopWorker::id));
+        for (EventLoopWorker w : sorted) {
+            Scannable[] tasks = w.inners().toArray(Scannable[]::new);
+            sb.append("  ").append(w.name()).append(": ").append(tasks.length).append(" pending\n");
+            for (int i = 0; i < tasks.length && i < maxTasksPerWorker; i++) {
+                Scannable t = tasks[i];
+                Long enqueuedAt = t.scan(LooperAttr.ENQUEUED_AT);
+                Long runAt = t.scan(LooperAttr.RUN_AT);
+                sb.append("    ").append(t.name())
+                        .append(" age=").append(enqueuedAt != null ? nowMs - enqueuedAt : 0).append("ms")
+                        .append(" runAt=").append(runAt != null ? String.format("%+d", runAt - nowMs) : "?").append("ms");
+                if (Boolean.TRUE.equals(t.scan(LooperAttr.PERIODIC))) {
+                    sb.append(" periodic");
+                }
+                sb.append('\n');
+            }
+            if (tasks.length > maxTasksPerWorker) {
+                sb.append("    ... ").append(tasks.length - maxTasksPerWorker).append(" more\n");
+            }
+        }
+        return sb.toString();
+    }
 }
\ No newline at end of file
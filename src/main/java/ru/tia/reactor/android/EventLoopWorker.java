@@ -1,106 +1,210 @@
 package ru.tia.reactor.android;
 
-import android.annotation.SuppressLint;
-import android.os.Handler;
-import android.os.Message;
 import reactor.core.Disposable;
-import reactor.core.Disposables;
 import reactor.core.Exceptions;
 import reactor.core.Scannable;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 import reactor.util.annotation.NonNull;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.stream.Stream;
 
 /**
  * При вызове {@link #dispose()} отменяются только задачи, запущенные с помощью данного {@link EventLoopWorker}
+ * <p>
+ * A disposed worker may be {@link #recycle() recycled} by {@link EventLoopScheduler}. The generation of the worker
+ * is even while it is in use and odd from disposal till recycling, so operations made through a stale
+ * {@link PooledWorker} are rejected and can't dispose the next generation.
  */
-final class EventLoopWorker implements Scheduler.Worker, WorkerDelete<Disposable>, Scannable {
+final class EventLoopWorker implements Scheduler.Worker, WorkerDelete<TaskNode>, Scannable {
 
     @NonNull
-    private final Handler handler;
+    private final MessageLoop loop;
     @NonNull
     private final EventLoopScheduler scheduler;
     @NonNull
-    private final Disposable.Composite tasks;
-    private final boolean async;
+    private final TaskList tasks = new TaskList();
     private volatile boolean shutdown = false;
+    private volatile int generation;
+    private volatile int id; // distinguishes the workers in dumps, renewed on recycling
+    private static final AtomicIntegerFieldUpdater<EventLoopWorker> GENERATION =
+            AtomicIntegerFieldUpdater.newUpdater(EventLoopWorker.class, "generation");
 
-    EventLoopWorker(@NonNull Handler handler, @NonNull EventLoopScheduler scheduler, boolean async) {
-        this.handler = handler;
+    EventLoopWorker(@NonNull MessageLoop loop, @NonNull EventLoopScheduler scheduler) {
+        this.loop = loop;
         this.scheduler = scheduler;
-        this.async = async;
-        this.tasks = Disposables.composite();
+        this.id = scheduler.nextWorkerId();
     }
 
     @Override
     @NonNull
     public Disposable schedule(@NonNull Runnable task) {
-        return scheduleInternal(task, 0, TimeUnit.MILLISECONDS, true);
+        return scheduleInternal(task, 0, TimeUnit.MILLISECONDS, true, generation);
     }
 
     @Override
     @NonNull
     public Disposable schedule(@NonNull Runnable task, long delay, @NonNull TimeUnit unit) {
-        return scheduleInternal(task, delay, unit, true);
+        return scheduleInternal(task, delay, unit, true, generation);
     }
 
+    @Override
     @NonNull
     public Disposable schedulePeriodically(@NonNull Runnable run, long initialDelay,long period, @NonNull TimeUnit unit) {
+        return schedulePeriodically(run, initialDelay, period, unit, generation);
+    }
+
+    @NonNull
+    Disposable schedulePeriodically(@NonNull Runnable run, long initialDelay, long period, @NonNull TimeUnit unit,
+                                    int generation) {
 
-        if (isDisposed()) throw Exceptions.failWithRejected();
+        if (isDisposed(generation)) throw Exceptions.failWithRejected();
 
         //Общий Disposable для всех повторных schedule(PeriodicTask)
-        Disposable.Swap sd = new SwapDisposableThen(this::delete);
+        SwapDisposableThen sd = new SwapDisposableThen(this::delete);
         final Runnable decoratedRun = Schedulers.onSchedule(run);
 
-        PeriodicTask periodicTask = new PeriodicTask(decoratedRun,
+        PeriodicTask periodicTask = new PeriodicTask(decoratedRun, run.getClass(),
                 initialDelay, period, unit,
-                this, scheduler, sd);
+                this, generation, scheduler, sd);
 
-        // false, т.к. d уничтожается через sd
-        Disposable d = scheduleInternal(periodicTask, initialDelay, unit , false);
-        sd.replace(d);
-        if (d.isDisposed() || !tasks.add(sd)) {
+        // Registered before scheduling: the first run may replace the task of sd before scheduleInternal() returns
+        if (!tasks.add(sd)) {
+            throw Exceptions.failWithRejected();
+        }
+        Disposable d;
+        try {
+            // false, т.к. d уничтожается через sd
+            d = scheduleInternal(periodicTask, initialDelay, unit , false, generation);
+        } catch (RejectedExecutionException e) {
+            sd.dispose();
+            throw e;
+        }
+        sd.setInitial(d);
+        if (this.generation != generation) {
             sd.dispose();
             throw Exceptions.failWithRejected();
         }
         return sd;
     }
 
-    Disposable scheduleInternal(@NonNull Runnable task, long delay, @NonNull TimeUnit unit, boolean isRequiresRegister) {
+    Disposable scheduleInternal(@NonNull Runnable task, long delay, @NonNull TimeUnit unit, boolean isRequiresRegister,
+                                int generation) {
+        return scheduleInternal(task, delay, unit, isRequiresRegister, generation, 0);
+    }
+
+    /**
+     * @param toleranceMs how late a delayed task may be run, so it is coalesced with other delayed tasks of the looper
+     *                    by {@link TimerCoalescer}. Non-positive value means the exact delay.
+     */
+    Disposable scheduleInternal(@NonNull Runnable task, long delay, @NonNull TimeUnit unit, boolean isRequiresRegister,
+                                int generation, long toleranceMs) {
         Objects.requireNonNull(task, "run == null");
         Objects.requireNonNull(unit, "unit == null");
-        if (isDisposed()) {
+        if (isDisposed(generation)) {
             throw Exceptions.failWithRejected();
         }
 
-        task = Schedulers.onSchedule(task);
-        SchedulerTask scheduled = new SchedulerTask(handler, task, this);
+        long nowMs = loop.uptimeMillis();
+        long delayMs = Math.max(unit.toMillis(delay), 0);
+        SchedulerTask scheduled = register(task, isRequiresRegister, nowMs, nowMs + delayMs);
+        HandoffQueue handoff;
+        if (delayMs == 0 && (handoff = scheduler.handoffQueue()) != null) {
+            handoff.offer(scheduled);
+        } else if (delayMs > 0 && toleranceMs > 0) {
+            scheduler.timerCoalescer().offer(scheduled, toleranceMs);
+        } else {
+            sendToLooper(scheduled);
+        }
+        return recheckDisposed(scheduled, generation);
+    }
+
+    @NonNull
+    Disposable scheduleWithDeadline(@NonNull Runnable task, long deadline, @NonNull TimeUnit unit) {
+        return scheduleWithDeadline(task, deadline, unit, generation);
+    }
+
+    /**
+     * Schedules the task by {@link DeadlineQueue}: pending deadline tasks are run in earliest-deadline-first order
+     * and overtake ordinary tasks of the looper only if those would make them miss the deadline.
+     *
+     * @param deadline the time, relative to now, by which the task should be run
+     */
+    @NonNull
+    Disposable scheduleWithDeadline(@NonNull Runnable task, long deadline, @NonNull TimeUnit unit, int generation) {
+        Objects.requireNonNull(task, "run == null");
+        Objects.requireNonNull(unit, "unit == null");
+        if (isDisposed(generation)) {
+            throw Exceptions.failWithRejected();
+        }
+
+        long nowMs = loop.uptimeMillis();
+        long deadlineMs = nowMs + unit.toMillis(deadline);
+        SchedulerTask scheduled = register(task, true, nowMs, nowMs);
+        scheduler.deadlineQueue().offer(scheduled, deadlineMs);
+        return recheckDisposed(scheduled, generation);
+    }
+
+    private SchedulerTask register(Runnable task, boolean isRequiresRegister, long enqueuedAtMs, long runAtMs) {
+        Runnable source = task;
+        // A periodic task is decorated once by schedulePeriodically(), not on every run
+        if (!(task instanceof PeriodicTask)) {
+            task = Schedulers.onSchedule(task);
+        }
+        SchedulerTask scheduled = new SchedulerTask(loop, task, this, source, enqueuedAtMs, runAtMs);
+        // Traced before registering, so the section is begun before the looper or a dispose() may end it
+        int traceCookie = TaskTracer.sample();
+        String traceName = null;
+        if (traceCookie != 0) {
+            traceName = scheduler.tracer().sectionName(sourceType(source));
+            scheduled.trace(traceName, traceCookie);
+        }
         if (tasks.isDisposed() || (isRequiresRegister && !tasks.add(scheduled))) {
+            // A rejected task is never run nor disposed, so nothing else ends its section
+            if (traceName != null) {
+                TaskTracer.endAsync(traceName, traceCookie);
+            }
             throw Exceptions.failWithRejected();
         }
-        sendToLooper(scheduled, delay, unit);
+        return scheduled;
+    }
+
+    static Class<?> sourceType(Runnable source) {
+        if (source instanceof PeriodicTask) {
+            return ((PeriodicTask) source).sourceType();
+        }
+        return source.getClass();
+    }
 
-        // Re-check disposed state for removing in case we were racing a call to dispose().
-        if (tasks.isDisposed()) {
+    private SchedulerTask recheckDisposed(SchedulerTask scheduled, int generation) {
+        // Re-check disposed state for removing in case we were racing a call to dispose() or the worker was recycled.
+        if (tasks.isDisposed() || this.generation != generation) {
             scheduled.dispose();
             throw Exceptions.failWithRejected();
         }
-
         return scheduled;
     }
 
     @Override
     public void dispose() {
-        shutdown = true;
-        if (!tasks.isDisposed()) {
-            handler.removeCallbacksAndMessages(this /* token */);
-            tasks.dispose();
-            scheduler.delete(this);
+        dispose(generation);
+    }
+
+    void dispose(int generation) {
+        // Only one call disposes the generation, so the worker is recycled once.
+        if ((generation & 1) != 0 || !GENERATION.compareAndSet(this, generation, generation + 1)) {
+            return;
         }
+        shutdown = true;
+        loop.removeAll(this /* token */);
+        tasks.dispose();
+        scheduler.delete(this);
     }
 
     @Override
@@ -108,11 +212,40 @@ final class EventLoopWorker implements Scheduler.Worker, WorkerDelete<Disposable
         return shutdown || tasks.isDisposed();
     }
 
+    boolean isDisposed(int generation) {
+        return this.generation != generation || isDisposed();
+    }
+
+    int generation() {
+        return generation;
+    }
+
+    /**
+     * @return the id of the worker, unique within the scheduler
+     */
+    int id() {
+        return id;
+    }
+
+    /**
+     * Reset the disposed worker for reuse.
+     */
+    void recycle() {
+        tasks.reset();
+        shutdown = false;
+        id = scheduler.nextWorkerId();
+        // published last, so the new generation is never seen with the state of the previous one
+        generation++;
+    }
+
     @Override
-    public void delete(Disposable r) {
+    public void delete(TaskNode r) {
+        // read first: a generation being disposed is odd and is not disposed again
+        int generation = this.generation;
         tasks.remove(r);
-        if (shutdown && tasks.size() == 0) {
-            dispose();
+        // Tasks removed by dispose() itself must not dispose the next generation
+        if (shutdown && tasks.size() == 0 && !tasks.isDisposed()) {
+            dispose(generation);
         }
     }
 
@@ -125,7 +258,7 @@ final class EventLoopWorker implements Scheduler.Worker, WorkerDelete<Disposable
         if (key == Attr.NAME) {
             //hack to recognize the SingleWorker
             //if (scheduler instanceof SingleWorkerScheduler) return scheduler + ".worker";
-            return scheduler + ".worker";
+            return scheduler + ".worker#" + id;
         }
 
         //return Schedulers.scanExecutor(executor, key);
@@ -133,25 +266,56 @@ final class EventLoopWorker implements Scheduler.Worker, WorkerDelete<Disposable
 
     }
 
+    /**
+     * @return a weakly consistent snapshot of pending tasks
+     */
+    @Override
+    @NonNull
+    public Stream<? extends Scannable> inners() {
+        List<TaskNode> nodes = tasks.snapshot();
+        List<SchedulerTask> pending = new ArrayList<>(nodes.size());
+        for (TaskNode node : nodes) {
+            if (node instanceof SchedulerTask) {
+                pending.add((SchedulerTask) node);
+            } else if (node instanceof SwapDisposableThen) {
+                // the current run of a periodic task
+                Disposable current = ((SwapDisposableThen) node).get();
+                if (current instanceof SchedulerTask) {
+                    pending.add((SchedulerTask) current);
+                }
+            }
+        }
+        return pending.stream();
+    }
+
     @NonNull
     @Override
     public String toString() {
         return getClass().getSimpleName();
     }
 
+    /**
+     * Stop accepting tasks and dispose the worker once pending tasks are done.
+     */
     void disposeGracefully() {
-        shutdown = true;
+        disposeGracefully(generation);
     }
 
-    @SuppressLint("NewApi") // Async will only be true when the API is available to call.
-    private void sendToLooper(SchedulerTask task, long delay, TimeUnit unit) {
-        Message message = Message.obtain(handler, task);
-        message.obj = this; // Used as token for batch disposal of this worker's runnables.
-
-        if (async) {
-            message.setAsynchronous(true);
+    /**
+     * @see #disposeGracefully()
+     */
+    void disposeGracefully(int generation) {
+        if ((generation & 1) != 0 || this.generation != generation) {
+            return;
         }
+        shutdown = true;
+        if (tasks.size() == 0) {
+            dispose(generation);
+        }
+    }
 
-        handler.sendMessageDelayed(message, unit.toMillis(delay));
+    private void sendToLooper(SchedulerTask task) {
+        // this is used as token for batch disposal of this worker's runnables.
+        loop.sendAtTime(task, this, task.runAtMs());
     }
 }
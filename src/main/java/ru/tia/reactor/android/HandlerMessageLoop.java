@@ -0,0 +1,72 @@
+package ru.tia.reactor.android;
+
+import android.annotation.SuppressLint;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.SystemClock;
+import reactor.util.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MessageLoop} of an Android {@link Looper}.
+ */
+final class HandlerMessageLoop implements MessageLoop {
+
+    @NonNull
+    private final Handler handler;
+    private final boolean async;
+
+    HandlerMessageLoop(@NonNull Looper looper, boolean async) {
+        this.handler = new Handler(looper);
+        this.async = async;
+    }
+
+    @Override
+    public void sendAtTime(@NonNull Runnable task, @NonNull Object token, long uptimeMs) {
+        Message message = obtain(task);
+        message.obj = token;
+        handler.sendMessageAtTime(message, uptimeMs);
+    }
+
+    @Override
+    public void sendAtFrontOfQueue(@NonNull Runnable task) {
+        handler.sendMessageAtFrontOfQueue(obtain(task));
+    }
+
+    @Override
+    public void remove(@NonNull Runnable task) {
+        handler.removeCallbacks(task);
+    }
+
+    @Override
+    public void removeAll(@NonNull Object token) {
+        handler.removeCallbacksAndMessages(token);
+    }
+
+    @Override
+    public long uptimeMillis() {
+        return SystemClock.uptimeMillis();
+    }
+
+    @Override
+    public long now(@NonNull TimeUnit unit) {
+        return unit.convert(System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    @NonNull
+    public String name() {
+        return handler.getLooper().getThread().getName();
+    }
+
+    @SuppressLint("NewApi") // Async will only be true when the API is available to call.
+    private Message obtain(Runnable task) {
+        Message message = Message.obtain(handler, task);
+        if (async) {
+            message.setAsynchronous(true);
+        }
+        return message;
+    }
+}
@@ -0,0 +1,63 @@
+package ru.tia.reactor.android;
+
+import reactor.util.annotation.NonNull;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Lock-free queue handing immediate tasks of an {@link EventLoopScheduler} over to its looper in batches.
+ * <p>
+ * Producers only post a drain message when the queue was empty, so tasks handed over from other threads between
+ * two looper turns are run by one message. A drain message runs the tasks pending at its start and posts the next
+ * drain message for the rest, so other messages of the looper are not starved. Tasks of each producer thread run
+ * in the order they were offered.
+ * <p>
+ * The drain message is shared by all workers, so it is not removed with the tasks of a disposed worker. It skips
+ * disposed tasks and is removed when the scheduler is disposed.
+ */
+final class HandoffQueue implements Runnable {
+
+    private static final AtomicIntegerFieldUpdater<HandoffQueue> WIP =
+            AtomicIntegerFieldUpdater.newUpdater(HandoffQueue.class, "wip");
+
+    @NonNull
+    private final MessageLoop loop;
+    private final Queue<SchedulerTask> queue = new ConcurrentLinkedQueue<>();
+    private volatile int wip; // number of offered but not run tasks
+
+    HandoffQueue(@NonNull MessageLoop loop) {
+        this.loop = loop;
+    }
+
+    void offer(@NonNull SchedulerTask task) {
+        queue.offer(task);
+        if (WIP.getAndIncrement(this) == 0) {
+            loop.sendAtTime(this, this /* token */, loop.uptimeMillis());
+        }
+    }
+
+    /**
+     * Remove the drain message and pending tasks of the disposed scheduler. No task is offered after that.
+     */
+    void clear() {
+        loop.removeAll(this /* token */);
+        queue.clear();
+    }
+
+    @Override
+    public void run() {
+        int batch = wip;
+        for (int i = 0; i < batch; i++) {
+            SchedulerTask task = queue.poll();
+            // Disposed tasks are left in the queue as the drain message must not be removed
+            if (task != null && !task.isDisposed()) {
+                task.run();
+            }
+        }
+        if (WIP.addAndGet(this, -batch) != 0) {
+            loop.sendAtTime(this, this, loop.uptimeMillis());
+        }
+    }
+}
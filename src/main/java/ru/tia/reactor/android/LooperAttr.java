@@ -0,0 +1,44 @@
+package ru.tia.reactor.android;
+
+import reactor.core.Scannable;
+import reactor.util.annotation.Nullable;
+
+/**
+ * {@link Scannable.Attr Attributes} of pending tasks of the looper schedulers.
+ * <p>
+ * Pending tasks of a worker are its {@link Scannable#inners() inners}, and workers are inners of the scheduler:
+ * <pre>
+ * Scannable.from(AndroidSchedulers.mainThread()).inners()
+ *         .flatMap(Scannable::inners)
+ *         .forEach(task -&gt; log(task.name(), task.scan(LooperAttr.AGE)));
+ * </pre>
+ *
+ * @param <T> the type of data associated with an attribute
+ * @see AndroidSchedulers#dumpPendingTasks(reactor.core.scheduler.Scheduler)
+ */
+public final class LooperAttr<T> extends Scannable.Attr<T> {
+
+    /**
+     * The time the task was scheduled, in {@link android.os.SystemClock#uptimeMillis()} time base.
+     */
+    public static final LooperAttr<Long> ENQUEUED_AT = new LooperAttr<>(null);
+
+    /**
+     * The time the task is due to run, in {@link android.os.SystemClock#uptimeMillis()} time base.
+     */
+    public static final LooperAttr<Long> RUN_AT = new LooperAttr<>(null);
+
+    /**
+     * Milliseconds passed since the task was scheduled.
+     */
+    public static final LooperAttr<Long> AGE = new LooperAttr<>(null);
+
+    /**
+     * Whether the task is a run of a periodic task.
+     */
+    public static final LooperAttr<Boolean> PERIODIC = new LooperAttr<>(false);
+
+    private LooperAttr(@Nullable T defaultValue) {
+        super(defaultValue);
+    }
+}
@@ -0,0 +1,404 @@
+package ru.tia.reactor.android;
+
+import reactor.core.Disposable;
+import reactor.core.Scannable;
+import reactor.util.annotation.NonNull;
+import reactor.util.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * {@link ScheduledExecutorService} view of an {@link EventLoopScheduler}.
+ * <p>
+ * Tasks are scheduled on a dedicated worker of the scheduler, so they share the looper queue, task tracking and
+ * graceful shutdown with Reactor tasks. {@link #shutdown()} and {@link #shutdownNow()} affect only this worker.
+ */
+final class LooperExecutorService extends AbstractExecutorService implements ScheduledExecutorService {
+
+    @NonNull
+    private final EventLoopScheduler scheduler;
+    @NonNull
+    private final PooledWorker worker;
+    /** Futures that are not done yet, for {@link #shutdownNow()}. */
+    private final Set<LooperFuture<?>> futures = ConcurrentHashMap.newKeySet();
+
+    LooperExecutorService(@NonNull EventLoopScheduler scheduler) {
+        this.scheduler = scheduler;
+        this.worker = (PooledWorker) scheduler.createWorker();
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        // submit() and invokeAll() pass futures created by newTaskFor()
+        if (command instanceof LooperFuture && ((LooperFuture<?>) command).executor == this) {
+            schedule((LooperFuture<?>) command, 0, TimeUnit.MILLISECONDS);
+        } else {
+            worker.schedule(command);
+        }
+    }
+
+    @Override
+    @NonNull
+    protected <T> RunnableFuture<T> newTaskFor(@NonNull Runnable runnable, @Nullable T value) {
+        return new LooperFuture<>(this, runnable, value, 0, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    @NonNull
+    protected <T> RunnableFuture<T> newTaskFor(@NonNull Callable<T> callable) {
+        return new LooperFuture<>(this, callable, 0, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    @NonNull
+    public ScheduledFuture<?> schedule(@NonNull Runnable command, long delay, @NonNull TimeUnit unit) {
+        Objects.requireNonNull(command, "command == null");
+        return schedule(new LooperFuture<>(this, command, null, delay, 0, unit), delay, unit);
+    }
+
+    @Override
+    @NonNull
+    public <V> ScheduledFuture<V> schedule(@NonNull Callable<V> callable, long delay, @NonNull TimeUnit unit) {
+        Objects.requireNonNull(callable, "callable == null");
+        return schedule(new LooperFuture<>(this, callable, delay, 0, unit), delay, unit);
+    }
+
+    @Override
+    @NonNull
+    public ScheduledFuture<?> scheduleAtFixedRate(@NonNull Runnable command, long initialDelay, long period,
+                                                  @NonNull TimeUnit unit) {
+        Objects.requireNonNull(command, "command == null");
+        if (period <= 0) throw new IllegalArgumentException("period must be positive, was " + period);
+        LooperFuture<Void> future = new LooperFuture<>(this, command, null, initialDelay, period, unit);
+        futures.add(future);
+        try {
+            future.setDisposable(worker.schedulePeriodically(future, initialDelay, period, unit));
+        } catch (RejectedExecutionException e) {
+            futures.remove(future);
+            throw e;
+        }
+        return future;
+    }
+
+    @Override
+    @NonNull
+    public ScheduledFuture<?> scheduleWithFixedDelay(@NonNull Runnable command, long initialDelay, long delay,
+                                                     @NonNull TimeUnit unit) {
+        Objects.requireNonNull(command, "command == null");
+        if (delay <= 0) throw new IllegalArgumentException("delay must be positive, was " + delay);
+        return schedule(new LooperFuture<>(this, command, null, initialDelay, -delay, unit), initialDelay, unit);
+    }
+
+    private <V> LooperFuture<V> schedule(LooperFuture<V> future, long delay, TimeUnit unit) {
+        // Tracked before scheduling, so a racing shutdownNow() either cancels the future or rejects the task
+        futures.add(future);
+        try {
+            future.setDisposable(worker.schedule(future, delay, unit));
+        } catch (RejectedExecutionException e) {
+            futures.remove(future);
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * Previously submitted tasks are executed, but no new tasks will be accepted.
+     * <p>
+     * Periodic tasks are cancelled, as by {@link java.util.concurrent.ScheduledThreadPoolExecutor} by default.
+     */
+    @Override
+    public void shutdown() {
+        worker.disposeGracefully();
+        for (LooperFuture<?> future : futures) {
+            if (future.isPeriodic()) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Cancel all pending tasks, so their futures throw {@link CancellationException}.
+     *
+     * @return the futures of tasks that were waiting for their run. Tasks passed to {@link #execute(Runnable)} are
+     * disposed in the looper queue and are not returned.
+     */
+    @Override
+    @NonNull
+    public List<Runnable> shutdownNow() {
+        worker.dispose();
+        List<Runnable> pending = new ArrayList<>();
+        for (LooperFuture<?> future : futures) {
+            if (future.cancelPending()) {
+                pending.add(future);
+            } else {
+                future.cancel(false);
+            }
+        }
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return worker.isDisposed();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        if (!worker.isDisposed()) {
+            return false;
+        }
+        Integer activeTaskCount = worker.scan(Scannable.Attr.BUFFERED);
+        return activeTaskCount == null || activeTaskCount == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        long timeoutMs = unit.toMillis(timeout);
+        long startMs = System.currentTimeMillis();
+        long durationMs = 0;
+        while (!isTerminated()) {
+            if (durationMs >= timeoutMs) {
+                return false;
+            }
+            Thread.sleep(Math.max(1, Math.min((timeoutMs - durationMs) / 10, 50)));
+            durationMs = System.currentTimeMillis() - startMs;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return scheduler + ".executorService";
+    }
+
+    /**
+     * A {@link ScheduledFuture} of a task scheduled on the looper. It is the task of the worker itself, without
+     * {@link java.util.concurrent.FutureTask} and callable adapter layers.
+     */
+    private static final class LooperFuture<V> implements RunnableScheduledFuture<V> {
+
+        private static final int NEW = 0;
+        private static final int RUNNING = 1;
+        private static final int COMPLETED = 2;
+        private static final int FAILED = 3;
+        private static final int CANCELLED = 4;
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<LooperFuture> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(LooperFuture.class, "state");
+
+        @NonNull
+        final LooperExecutorService executor;
+        @Nullable
+        private final Runnable command;
+        @Nullable
+        private final Callable<V> callable;
+        /** 0 for one-shot, positive for fixed rate, negative for fixed delay tasks. */
+        private final long periodMs;
+        private volatile long triggerTimeMs; // in MessageLoop#uptimeMillis() time base
+        private volatile int state;
+        /** The result or the exception, published by the write of {@link #state}. */
+        @Nullable
+        private Object outcome;
+        @Nullable
+        private volatile Disposable disposable;
+
+        LooperFuture(LooperExecutorService executor, Runnable command, @Nullable V result,
+                     long delay, long period, TimeUnit unit) {
+            this(executor, command, null, result, delay, period, unit);
+        }
+
+        LooperFuture(LooperExecutorService executor, Callable<V> callable, long delay, long period, TimeUnit unit) {
+            this(executor, null, callable, null, delay, period, unit);
+        }
+
+        private LooperFuture(LooperExecutorService executor, @Nullable Runnable command, @Nullable Callable<V> callable,
+                             @Nullable V result, long delay, long period, TimeUnit unit) {
+            this.executor = executor;
+            this.command = command;
+            this.callable = callable;
+            this.outcome = result;
+            this.periodMs = unit.toMillis(period);
+            this.triggerTimeMs = executor.scheduler.uptimeMillis() + unit.toMillis(delay);
+        }
+
+        void setDisposable(Disposable d) {
+            disposable = d;
+            // in case of racing with cancel()
+            if (isDone()) {
+                d.dispose();
+            }
+        }
+
+        @Override
+        public void run() {
+            if (!STATE.compareAndSet(this, NEW, RUNNING)) {
+                return;
+            }
+            Object result;
+            try {
+                if (callable != null) {
+                    result = callable.call();
+                } else {
+                    Objects.requireNonNull(command).run();
+                    result = outcome;
+                }
+            } catch (Throwable t) {
+                complete(FAILED, t);
+                return;
+            }
+            if (periodMs == 0) {
+                complete(COMPLETED, result);
+            } else if (STATE.compareAndSet(this, RUNNING, NEW)) {
+                if (executor.worker.isDisposed()) {
+                    // shut down while running, the task is not run again
+                    cancel(false);
+                } else if (periodMs > 0) {
+                    triggerTimeMs += periodMs;
+                } else {
+                    triggerTimeMs = executor.scheduler.uptimeMillis() - periodMs;
+                    try {
+                        setDisposable(executor.worker.schedule(this, -periodMs, TimeUnit.MILLISECONDS));
+                    } catch (RejectedExecutionException rejected) {
+                        // the executor is shut down
+                        cancel(false);
+                    }
+                }
+            }
+        }
+
+        private void complete(int state, Object outcome) {
+            this.outcome = outcome;
+            // fails if cancelled while running
+            if (STATE.compareAndSet(this, RUNNING, state)) {
+                finish();
+            }
+        }
+
+        private void finish() {
+            executor.futures.remove(this);
+            // the task of a one-shot future that has been run is done with
+            Disposable d = disposable;
+            if (d != null && (periodMs != 0 || state == CANCELLED)) {
+                d.dispose();
+            }
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+
+        /**
+         * Cancel the future if its task is waiting for a run.
+         */
+        boolean cancelPending() {
+            if (STATE.compareAndSet(this, NEW, CANCELLED)) {
+                finish();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            // never interrupt the looper thread
+            for (; ; ) {
+                int s = state;
+                if (s >= COMPLETED) {
+                    return false;
+                }
+                if (STATE.compareAndSet(this, s, CANCELLED)) {
+                    finish();
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        @Override
+        public boolean isDone() {
+            return state >= COMPLETED;
+        }
+
+        @Override
+        public V get() throws InterruptedException, ExecutionException {
+            synchronized (this) {
+                while (state < COMPLETED) {
+                    wait();
+                }
+            }
+            return report();
+        }
+
+        @Override
+        public V get(long timeout, @NonNull TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+            synchronized (this) {
+                while (state < COMPLETED) {
+                    long leftNanos = deadlineNanos - System.nanoTime();
+                    if (leftNanos <= 0) {
+                        throw new TimeoutException();
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, leftNanos);
+                }
+            }
+            return report();
+        }
+
+        @SuppressWarnings("unchecked")
+        private V report() throws ExecutionException {
+            int s = state;
+            if (s == CANCELLED) {
+                throw new CancellationException();
+            }
+            if (s == FAILED) {
+                throw new ExecutionException((Throwable) outcome);
+            }
+            return (V) outcome;
+        }
+
+        @Override
+        public boolean isPeriodic() {
+            return periodMs != 0;
+        }
+
+        @Override
+        public long getDelay(@NonNull TimeUnit unit) {
+            return unit.convert(triggerTimeMs - executor.scheduler.uptimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(@NonNull Delayed o) {
+            if (o == this) {
+                return 0;
+            }
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), o.getDelay(TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public String toString() {
+            Object task = callable != null ? callable : command;
+            return super.toString() + "[" + task + "]";
+        }
+    }
+}
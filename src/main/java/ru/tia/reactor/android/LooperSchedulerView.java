@@ -0,0 +1,156 @@
+package ru.tia.reactor.android;
+
+import reactor.core.Disposable;
+import reactor.core.Scannable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A view of a Looper scheduler with scheduling options for its tasks and the tasks of its workers:
+ * <ul>
+ * <li>delay tolerance: delayed tasks may be run up to the tolerance late, so tasks with overlapping windows are run
+ * by one looper message, see {@link TimerCoalescer}</li>
+ * <li>deadline: immediate tasks are run in earliest-deadline-first order, see {@link DeadlineQueue}</li>
+ * </ul>
+ * Tasks and workers are those of the underlying {@link EventLoopScheduler}, the lifecycle is that of the scheduler
+ * the view is created from.
+ *
+ * @see AndroidSchedulers#withDelayTolerance(Scheduler, java.time.Duration)
+ * @see AndroidSchedulers#withDeadline(Scheduler, java.time.Duration)
+ */
+final class LooperSchedulerView implements Scheduler, Scannable {
+
+    @NonNull
+    private final Scheduler origin;
+    @NonNull
+    final EventLoopScheduler scheduler;
+    private final long toleranceMs;
+    private final long deadlineMs;
+
+    /**
+     * @param toleranceMs how late delayed tasks may be run, 0 for the exact delay
+     * @param deadlineMs  the deadline of immediate tasks, negative for no deadline
+     */
+    private LooperSchedulerView(@NonNull Scheduler origin, @NonNull EventLoopScheduler scheduler, long toleranceMs,
+                                long deadlineMs) {
+        this.origin = origin;
+        this.scheduler = scheduler;
+        this.toleranceMs = toleranceMs;
+        this.deadlineMs = deadlineMs;
+    }
+
+    /**
+     * @param scheduler the scheduler or a view of it, the options of a view are kept
+     */
+    @NonNull
+    static LooperSchedulerView withDelayTolerance(@NonNull Scheduler scheduler, @NonNull EventLoopScheduler s,
+                                                  long toleranceMs) {
+        if (scheduler instanceof LooperSchedulerView) {
+            LooperSchedulerView view = (LooperSchedulerView) scheduler;
+            return new LooperSchedulerView(view.origin, s, toleranceMs, view.deadlineMs);
+        }
+        return new LooperSchedulerView(scheduler, s, toleranceMs, -1);
+    }
+
+    /**
+     * @param scheduler the scheduler or a view of it, the options of a view are kept
+     */
+    @NonNull
+    static LooperSchedulerView withDeadline(@NonNull Scheduler scheduler, @NonNull EventLoopScheduler s,
+                                            long deadlineMs) {
+        if (scheduler instanceof LooperSchedulerView) {
+            LooperSchedulerView view = (LooperSchedulerView) scheduler;
+            return new LooperSchedulerView(view.origin, s, view.toleranceMs, deadlineMs);
+        }
+        return new LooperSchedulerView(scheduler, s, 0, deadlineMs);
+    }
+
+    @Override
+    @NonNull
+    public Disposable schedule(@NonNull Runnable task) {
+        if (deadlineMs >= 0) {
+            return scheduler.scheduleWithDeadline(task, deadlineMs, TimeUnit.MILLISECONDS);
+        }
+        return scheduler.schedule(task);
+    }
+
+    @Override
+    @NonNull
+    public Disposable schedule(@NonNull Runnable task, long delay, @NonNull TimeUnit unit) {
+        if (delay <= 0) {
+            return schedule(task);
+        }
+        return scheduler.schedule(task, delay, unit, toleranceMs);
+    }
+
+    /**
+     * Periodic tasks keep their exact rate.
+     */
+    @Override
+    @NonNull
+    public Disposable schedulePeriodically(@NonNull Runnable task, long initialDelay, long period,
+                                           @NonNull TimeUnit unit) {
+        return scheduler.schedulePeriodically(task, initialDelay, period, unit);
+    }
+
+    @Override
+    @NonNull
+    public Worker createWorker() {
+        return scheduler.createWorker(toleranceMs, deadlineMs);
+    }
+
+    @Override
+    public long now(@NonNull TimeUnit unit) {
+        return scheduler.now(unit);
+    }
+
+    @Override
+    public void init() {
+        origin.init();
+    }
+
+    @Override
+    public void dispose() {
+        origin.dispose();
+    }
+
+    @Override
+    @NonNull
+    public Mono<Void> disposeGracefully() {
+        return origin.disposeGracefully();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return origin.isDisposed();
+    }
+
+    @Override
+    public Object scanUnsafe(@NonNull Attr key) {
+        if (key == Attr.NAME) return toString();
+        return scheduler.scanUnsafe(key);
+    }
+
+    @Override
+    @NonNull
+    public Stream<? extends Scannable> inners() {
+        return scheduler.inners();
+    }
+
+    @Override
+    @NonNull
+    public String toString() {
+        StringBuilder sb = new StringBuilder(origin.toString());
+        if (toleranceMs > 0) {
+            sb.append(".withDelayTolerance(").append(toleranceMs).append("ms)");
+        }
+        if (deadlineMs >= 0) {
+            sb.append(".withDeadline(").append(deadlineMs).append("ms)");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,47 @@
+package ru.tia.reactor.android;
+
+import reactor.util.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Message queue of a looper that runs tasks of {@link EventLoopScheduler}.
+ *
+ * @see HandlerMessageLoop
+ * @see VirtualMessageLoop
+ */
+interface MessageLoop {
+
+    /**
+     * Post the task to be run at the time.
+     *
+     * @param token    used for batch removal by {@link #removeAll(Object)}
+     * @param uptimeMs the time in {@link #uptimeMillis()} time base
+     */
+    void sendAtTime(@NonNull Runnable task, @NonNull Object token, long uptimeMs);
+
+    /**
+     * Post the task to be run before all pending tasks.
+     */
+    void sendAtFrontOfQueue(@NonNull Runnable task);
+
+    void remove(@NonNull Runnable task);
+
+    void removeAll(@NonNull Object token);
+
+    /**
+     * @return the time base of the loop in milliseconds
+     */
+    long uptimeMillis();
+
+    /**
+     * @return the wall clock time of the loop
+     */
+    long now(@NonNull TimeUnit unit);
+
+    /**
+     * @return the name of the loop thread
+     */
+    @NonNull
+    String name();
+}
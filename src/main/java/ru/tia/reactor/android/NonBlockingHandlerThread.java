@@ -0,0 +1,28 @@
+package ru.tia.reactor.android;
+
+import android.os.HandlerThread;
+import reactor.core.scheduler.NonBlocking;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * A {@link HandlerThread} that is recognized by {@link Schedulers#isInNonBlockingThread()}.
+ * <p>
+ * Blocking operators like {@code Mono#block()} fail immediately with {@link IllegalStateException} when called on
+ * this thread, instead of freezing the looper.
+ *
+ * @see AndroidSchedulers#from(android.os.Looper)
+ */
+public class NonBlockingHandlerThread extends HandlerThread implements NonBlocking {
+
+    public NonBlockingHandlerThread(String name) {
+        super(name);
+    }
+
+    /**
+     * @param priority The priority to run the thread at. The value supplied must be from
+     *                 {@link android.os.Process} and not from java.lang.Thread.
+     */
+    public NonBlockingHandlerThread(String name, int priority) {
+        super(name, priority);
+    }
+}
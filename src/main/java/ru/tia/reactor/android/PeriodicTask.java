@@ -4,12 +4,15 @@ import reactor.core.Disposable;
 import reactor.core.scheduler.Scheduler;
 import reactor.util.annotation.NonNull;
 
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 final class PeriodicTask implements Runnable {
 
     private final EventLoopWorker worker;
+    private final int generation;
     private final Runnable decoratedRun;
+    private final Class<?> sourceType;
     private final Scheduler clock;
     private final Disposable.Swap sd;
     private final long periodMs;
@@ -49,12 +52,19 @@ final class PeriodicTask implements Runnable {
         return TimeUnit.MINUTES.toMillis(time);
     }
 
-    PeriodicTask(@NonNull Runnable decoratedRun,
+    /**
+     * @param decoratedRun the task decorated by {@link reactor.core.scheduler.Schedulers#onSchedule(Runnable)}, it is
+     *                     run as is on every period
+     * @param sourceType   the type of the task before decoration
+     */
+    PeriodicTask(@NonNull Runnable decoratedRun, @NonNull Class<?> sourceType,
                  long initialDelay, long period, @NonNull TimeUnit unit,
-                 EventLoopWorker worker, Scheduler clock, @NonNull Disposable.Swap sd) {
+                 EventLoopWorker worker, int generation, Scheduler clock, @NonNull Disposable.Swap sd) {
 
         this.decoratedRun = decoratedRun;
+        this.sourceType = sourceType;
         this.worker = worker;
+        this.generation = generation;
         this.clock = clock;
         this.sd = sd;
 
@@ -63,6 +73,13 @@ final class PeriodicTask implements Runnable {
         this.startAtMs = lastNowMs + unit.toMillis(initialDelay);
     }
 
+    /**
+     * @return the type of the periodically run task
+     */
+    Class<?> sourceType() {
+        return sourceType;
+    }
+
     @Override
     public void run() {
         try {
@@ -70,8 +87,11 @@ final class PeriodicTask implements Runnable {
             decoratedRun.run();
 
             //worker.isDisposed() == true когда он в состоянии SHUTDOWN, ожидая завершения поставленных в очередь задач.
-            if (!sd.isDisposed() && !worker.isDisposed()) {
+            if (!sd.isDisposed() && !worker.isDisposed(generation)) {
                 scheduleNext();
+            } else {
+                // Stopped: the disposed sd leaves the worker's tasks, so a graceful shutdown can complete
+                sd.dispose();
             }
         } catch (Throwable e) {
             sd.dispose();
@@ -100,8 +120,15 @@ final class PeriodicTask implements Runnable {
 
         long delay = nextTick - nowMs;
 
-        // false, т.к. next уничтожается в worker через sd
-        Disposable next = worker.scheduleInternal(this, delay, TimeUnit.MILLISECONDS, false);
+        Disposable next;
+        try {
+            // false, т.к. next уничтожается в worker через sd
+            next = worker.scheduleInternal(this, delay, TimeUnit.MILLISECONDS, false, generation);
+        } catch (RejectedExecutionException e) {
+            // the worker has been disposed since the check in run()
+            sd.dispose();
+            return;
+        }
         // Не sd.update, т.к. излишне вызывать dispose у предыдущего ScheduledRunnable и next не утекает
         sd.replace(next);
     }
@@ -0,0 +1,108 @@
+package ru.tia.reactor.android;
+
+import reactor.core.Disposable;
+import reactor.core.Scannable;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A handle of a recyclable {@link EventLoopWorker} returned by {@link EventLoopScheduler#createWorker()}.
+ * <p>
+ * The handle is bound to the worker's generation at creation. Once the worker is disposed the handle stays disposed
+ * even if the worker is recycled, so a stale handle never affects tasks of the worker's next owner.
+ */
+final class PooledWorker implements Scheduler.Worker, Scannable {
+
+    @NonNull
+    private final EventLoopWorker worker;
+    private final int generation;
+    private final long toleranceMs;
+    private final long deadlineMs;
+
+    PooledWorker(@NonNull EventLoopWorker worker) {
+        this(worker, 0, -1);
+    }
+
+    /**
+     * @param toleranceMs how late delayed tasks of the worker may be run, see {@link TimerCoalescer}
+     * @param deadlineMs  the deadline of immediate tasks of the worker, see {@link DeadlineQueue}. Negative value
+     *                    means no deadline.
+     */
+    PooledWorker(@NonNull EventLoopWorker worker, long toleranceMs, long deadlineMs) {
+        this.worker = worker;
+        this.generation = worker.generation();
+        this.toleranceMs = toleranceMs;
+        this.deadlineMs = deadlineMs;
+    }
+
+    @NonNull
+    EventLoopWorker worker() {
+        return worker;
+    }
+
+    @Override
+    @NonNull
+    public Disposable schedule(@NonNull Runnable task) {
+        if (deadlineMs >= 0) {
+            return worker.scheduleWithDeadline(task, deadlineMs, TimeUnit.MILLISECONDS, generation);
+        }
+        return worker.scheduleInternal(task, 0, TimeUnit.MILLISECONDS, true, generation);
+    }
+
+    @Override
+    @NonNull
+    public Disposable schedule(@NonNull Runnable task, long delay, @NonNull TimeUnit unit) {
+        if (deadlineMs >= 0 && delay <= 0) {
+            return worker.scheduleWithDeadline(task, deadlineMs, TimeUnit.MILLISECONDS, generation);
+        }
+        return worker.scheduleInternal(task, delay, unit, true, generation, toleranceMs);
+    }
+
+    @Override
+    @NonNull
+    public Disposable schedulePeriodically(@NonNull Runnable task, long initialDelay, long period, @NonNull TimeUnit unit) {
+        return worker.schedulePeriodically(task, initialDelay, period, unit, generation);
+    }
+
+    @Override
+    public void dispose() {
+        worker.dispose(generation);
+    }
+
+    /**
+     * @see EventLoopWorker#disposeGracefully(int)
+     */
+    void disposeGracefully() {
+        worker.disposeGracefully(generation);
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return worker.isDisposed(generation);
+    }
+
+    @Override
+    public Object scanUnsafe(@NonNull Attr key) {
+        if (worker.generation() != generation) {
+            if (key == Attr.TERMINATED || key == Attr.CANCELLED) return true;
+            if (key == Attr.BUFFERED) return 0;
+        }
+        return worker.scanUnsafe(key);
+    }
+
+    @NonNull
+    @Override
+    public Stream<? extends Scannable> inners() {
+        // tasks of the worker's next owner are not ours
+        return worker.generation() == generation ? worker.inners() : Stream.empty();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return worker.toString();
+    }
+}
@@ -1,44 +1,126 @@
 package ru.tia.reactor.android;
 
-import android.os.Handler;
-import reactor.core.Disposable;
+import android.os.SystemClock;
+import reactor.core.Scannable;
 import reactor.util.annotation.NonNull;
+import reactor.util.annotation.Nullable;
 
-final class SchedulerTask implements Runnable, Disposable {
-    private final Handler handler;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+final class SchedulerTask extends TaskNode implements Runnable, Scannable {
+    private final MessageLoop loop;
     private final Runnable delegate;
-    private final WorkerDelete<Disposable> workerDelete;
+    private final WorkerDelete<TaskNode> workerDelete;
+    /** The runnable as scheduled, before {@link reactor.core.scheduler.Schedulers#onSchedule} decoration. */
+    private final Runnable source;
+    private final long enqueuedAtMs;
+    private final long runAtMs;
+
+    private volatile int state = PENDING;
+    private static final AtomicIntegerFieldUpdater<SchedulerTask> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(SchedulerTask.class, "state");
+    private static final int PENDING = 0;
+    private static final int RUNNING = 1;
+    /** Run or disposed. */
+    private static final int DONE = 2;
 
-    private volatile boolean disposed; // Tracked solely for isDisposed().
+    /** The looper message of the task if it is coalesced by {@link TimerCoalescer}. */
+    @Nullable
+    volatile TimerCoalescer.Wakeup wakeup;
 
+    @Nullable
+    private String traceName;
+    private int traceCookie;
 
-    SchedulerTask(@NonNull Handler handler, @NonNull Runnable delegate, @NonNull WorkerDelete<Disposable> workerDelete) {
-        this.handler = handler;
+    SchedulerTask(@NonNull MessageLoop loop, @NonNull Runnable delegate, @NonNull WorkerDelete<TaskNode> workerDelete,
+                  @NonNull Runnable source, long enqueuedAtMs, long runAtMs) {
+        this.loop = loop;
         this.delegate = delegate;
         this.workerDelete = workerDelete;
+        this.source = source;
+        this.enqueuedAtMs = enqueuedAtMs;
+        this.runAtMs = runAtMs;
+    }
+
+    /**
+     * @return the time the task is due to run in {@link MessageLoop#uptimeMillis()} time base
+     */
+    long runAtMs() {
+        return runAtMs;
+    }
+
+    /**
+     * Trace this task with the async section started by the schedule call.
+     */
+    void trace(@NonNull String name, int cookie) {
+        traceName = name;
+        traceCookie = cookie;
+        TaskTracer.beginAsync(name, cookie);
     }
 
     @Override
     public void run() {
+        // The message may have been dequeued by the looper just before a dispose() from another thread.
+        // Whichever of run() and dispose() leaves PENDING first ends the async trace section.
+        if (!STATE.compareAndSet(this, PENDING, RUNNING)) {
+            return;
+        }
+        long thresholdMs = AndroidSchedulers.blockingThresholdMs;
+        long startMs = thresholdMs > 0 ? SystemClock.uptimeMillis() : 0;
+        String traceName = this.traceName;
+        if (traceName != null) {
+            TaskTracer.endAsync(traceName, traceCookie);
+            TaskTracer.begin(traceName);
+        }
         try {
             delegate.run();
         } catch (Throwable t) {
             AndroidSchedulers.handleError(t);
         } finally {
-            disposed = true;
+            if (traceName != null) {
+                TaskTracer.end();
+            }
+            state = DONE;
             workerDelete.delete(this);
+            if (thresholdMs > 0) {
+                long durationMs = SystemClock.uptimeMillis() - startMs;
+                if (durationMs > thresholdMs) {
+                    AndroidSchedulers.onLooperBlocked(EventLoopWorker.sourceType(source), durationMs);
+                }
+            }
         }
     }
 
     @Override
     public void dispose() {
-        disposed = true;
-        handler.removeCallbacks(this);
+        int prev = STATE.getAndSet(this, DONE);
+        loop.remove(this);
+        TimerCoalescer.Wakeup wakeup = this.wakeup;
+        if (wakeup != null) {
+            wakeup.remove(this);
+        }
+        if (traceName != null && prev == PENDING) {
+            TaskTracer.endAsync(traceName, traceCookie);
+        }
         workerDelete.delete(this);
     }
 
     @Override
     public boolean isDisposed() {
-        return disposed;
+        return state == DONE;
+    }
+
+    @Override
+    public Object scanUnsafe(@NonNull Attr key) {
+        if (key == LooperAttr.ENQUEUED_AT) return enqueuedAtMs;
+        if (key == LooperAttr.RUN_AT) return runAtMs;
+        if (key == LooperAttr.AGE) return loop.uptimeMillis() - enqueuedAtMs;
+        if (key == LooperAttr.PERIODIC) return source instanceof PeriodicTask;
+        if (key == Attr.TERMINATED || key == Attr.CANCELLED) return state == DONE;
+        if (key == Attr.PARENT) return workerDelete instanceof Scannable ? workerDelete : null;
+        if (key == Attr.RUN_STYLE) return Attr.RunStyle.ASYNC;
+        if (key == Attr.NAME) return EventLoopWorker.sourceType(source).getName();
+
+        return null;
     }
 }
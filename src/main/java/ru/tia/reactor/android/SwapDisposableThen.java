@@ -4,47 +4,84 @@ import reactor.core.Disposable;
 import reactor.core.Disposables;
 import reactor.util.annotation.Nullable;
 
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.Consumer;
 
-class SwapDisposableThen implements Disposable.Swap {
+class SwapDisposableThen extends TaskNode implements Disposable.Swap {
+
+    private static final Disposable DISPOSED = Disposables.disposed();
+    private static final AtomicReferenceFieldUpdater<SwapDisposableThen, Disposable> CURRENT =
+            AtomicReferenceFieldUpdater.newUpdater(SwapDisposableThen.class, Disposable.class, "current");
 
     private final Consumer<? super SwapDisposableThen> doOnDispose;
-    private final Swap delegate;
+    @Nullable
+    private volatile Disposable current;
 
     public SwapDisposableThen(Disposable initial, Consumer<? super SwapDisposableThen> doOnDispose){
         this.doOnDispose = doOnDispose;
-        delegate = Disposables.swap();
-        delegate.replace(initial);
+        this.current = initial;
     }
 
     public SwapDisposableThen(Consumer<? super SwapDisposableThen> doOnDispose){
         this.doOnDispose = doOnDispose;
-        delegate = Disposables.swap();
     }
 
     @Override
     public boolean update(@Nullable Disposable next) {
-        return delegate.update(next);
+        for (;;) {
+            Disposable c = current;
+            if (c == DISPOSED) {
+                if (next != null) {
+                    next.dispose();
+                }
+                return false;
+            }
+            if (CURRENT.compareAndSet(this, c, next)) {
+                if (c != null) {
+                    c.dispose();
+                }
+                return true;
+            }
+        }
     }
 
     @Override
     public boolean replace(@Nullable Disposable next) {
-        return delegate.update(next);
+        return update(next);
+    }
+
+    /**
+     * Set the first disposable unless it has already been replaced, e.g. by a periodic task that has run before
+     * its schedule call returned.
+     *
+     * @return false if the disposable has already been set or this is disposed
+     */
+    boolean setInitial(Disposable initial) {
+        if (CURRENT.compareAndSet(this, null, initial)) {
+            return true;
+        }
+        if (current == DISPOSED) {
+            initial.dispose();
+        }
+        return false;
     }
 
     @Override
     public Disposable get() {
-        return delegate.get();
+        return current;
     }
 
     @Override
     public void dispose() {
-        delegate.dispose();
+        Disposable c = CURRENT.getAndSet(this, DISPOSED);
+        if (c != null && c != DISPOSED) {
+            c.dispose();
+        }
         doOnDispose.accept(this);
     }
 
     @Override
     public boolean isDisposed() {
-        return delegate.isDisposed();
+        return current == DISPOSED;
     }
 }
@@ -0,0 +1,156 @@
+package ru.tia.reactor.android;
+
+import reactor.core.Disposable;
+import reactor.util.annotation.NonNull;
+import reactor.util.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Pending tasks of {@link EventLoopWorker}. A lightweight replacement of {@link Disposable.Composite}.
+ * <p>
+ * Tasks are linked intrusively through {@link TaskNode#next}. {@link #add(TaskNode)} is a lock-free push to the
+ * head, {@link #remove(TaskNode)} is an O(1) CAS of the node's state from any thread. Removed nodes are unlinked
+ * lazily by a single purging thread once they outnumber pending ones, so the list stays proportional to
+ * {@link #size()}.
+ */
+final class TaskList implements Disposable {
+
+    private static final int PURGE_THRESHOLD = 32;
+
+    private static final TaskNode TERMINATED = new TaskNode() {
+        @Override
+        public void dispose() {
+        }
+    };
+
+    private static final AtomicReferenceFieldUpdater<TaskList, TaskNode> HEAD =
+            AtomicReferenceFieldUpdater.newUpdater(TaskList.class, TaskNode.class, "head");
+    private static final AtomicIntegerFieldUpdater<TaskList> SIZE =
+            AtomicIntegerFieldUpdater.newUpdater(TaskList.class, "size");
+    private static final AtomicIntegerFieldUpdater<TaskList> REMOVED =
+            AtomicIntegerFieldUpdater.newUpdater(TaskList.class, "removed");
+    private static final AtomicIntegerFieldUpdater<TaskList> PURGING =
+            AtomicIntegerFieldUpdater.newUpdater(TaskList.class, "purging");
+
+    @Nullable
+    private volatile TaskNode head;
+    private volatile int size;
+    private volatile int removed; // removed but not unlinked nodes
+    private volatile int purging;
+
+    /**
+     * @return false if the list is disposed or the node has already been added to a list
+     */
+    boolean add(@NonNull TaskNode node) {
+        if (!node.link()) {
+            return false;
+        }
+        for (;;) {
+            TaskNode h = head;
+            if (h == TERMINATED) {
+                node.unlink();
+                return false;
+            }
+            node.next = h;
+            if (HEAD.compareAndSet(this, h, node)) {
+                SIZE.incrementAndGet(this);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return false if the node isn't pending in the list
+     */
+    boolean remove(@NonNull TaskNode node) {
+        if (!node.unlink()) {
+            return false;
+        }
+        SIZE.decrementAndGet(this);
+        int r = REMOVED.incrementAndGet(this);
+        if (r > PURGE_THRESHOLD && r > size) {
+            purge();
+        }
+        return true;
+    }
+
+    int size() {
+        // may be transiently negative when a node is removed before add() has counted it
+        return Math.max(size, 0);
+    }
+
+    /**
+     * @return a weakly consistent snapshot of pending nodes, the most recently added first
+     */
+    @NonNull
+    List<TaskNode> snapshot() {
+        List<TaskNode> nodes = new ArrayList<>(size());
+        TaskNode h = head;
+        if (h == TERMINATED) {
+            return nodes;
+        }
+        for (TaskNode n = h; n != null; n = n.next) {
+            if (n.isLinked()) {
+                nodes.add(n);
+            }
+        }
+        return nodes;
+    }
+
+    @Override
+    public void dispose() {
+        TaskNode n = HEAD.getAndSet(this, TERMINATED);
+        if (n == TERMINATED) {
+            return;
+        }
+        for (; n != null; n = n.next) {
+            if (n.unlink()) {
+                SIZE.decrementAndGet(this);
+                n.dispose();
+            }
+        }
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return head == TERMINATED;
+    }
+
+    /**
+     * Reset the disposed list for reuse.
+     */
+    void reset() {
+        removed = 0;
+        size = 0;
+        head = null;
+    }
+
+    private void purge() {
+        if (!PURGING.compareAndSet(this, 0, 1)) {
+            return;
+        }
+        try {
+            TaskNode pred = head;
+            if (pred == null || pred == TERMINATED) {
+                return;
+            }
+            // The head is left in place as concurrent add() replaces it
+            int unlinked = 0;
+            for (TaskNode n = pred.next; n != null; n = n.next) {
+                if (n.isLinked()) {
+                    pred = n;
+                } else {
+                    pred.next = n.next;
+                    unlinked++;
+                }
+            }
+            REMOVED.addAndGet(this, -unlinked);
+        } finally {
+            purging = 0;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ru.tia.reactor.android;
+
+import reactor.core.Disposable;
+import reactor.util.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A task that can be linked into a {@link TaskList}.
+ * <p>
+ * A node can be added to a list only once.
+ */
+abstract class TaskNode implements Disposable {
+
+    private static final int NEW = 0;
+    private static final int LINKED = 1;
+    private static final int REMOVED = 2;
+
+    private static final AtomicIntegerFieldUpdater<TaskNode> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(TaskNode.class, "state");
+
+    @Nullable
+    volatile TaskNode next;
+    private volatile int state;
+
+    final boolean link() {
+        return STATE.compareAndSet(this, NEW, LINKED);
+    }
+
+    final boolean unlink() {
+        return STATE.compareAndSet(this, LINKED, REMOVED);
+    }
+
+    final boolean isLinked() {
+        return state == LINKED;
+    }
+}
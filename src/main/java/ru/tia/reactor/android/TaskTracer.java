@@ -0,0 +1,93 @@
+package ru.tia.reactor.android;
+
+import android.os.Build;
+import android.os.Trace;
+import reactor.util.annotation.NonNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Emits {@link Trace} sections for tasks of an {@link EventLoopScheduler}.
+ * <p>
+ * A sampled task gets a section around its run named after the scheduler and the task type, and an async section
+ * from the schedule call to the start of the run. When tracing is disabled the cost is a single volatile read.
+ *
+ * @see AndroidSchedulers#enableTracing(int)
+ */
+final class TaskTracer {
+
+    /** Max length of a section name accepted by {@link Trace}. */
+    private static final int MAX_SECTION_NAME_LENGTH = 127;
+
+    /** Every n-th task is traced, 0 if tracing is disabled. */
+    static volatile int sampleRate;
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    @NonNull
+    private final String prefix;
+    private final ConcurrentMap<Class<?>, String> sectionNames = new ConcurrentHashMap<>();
+
+    TaskTracer(@NonNull String prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * @return the cookie of the async section or 0 if the task is not sampled
+     */
+    static int sample() {
+        int rate = sampleRate;
+        if (rate <= 0) {
+            return 0;
+        }
+        int cookie = COUNTER.incrementAndGet();
+        if (cookie % rate != 0 || !isTraceEnabled()) {
+            return 0;
+        }
+        return cookie == 0 ? 1 : cookie;
+    }
+
+    /**
+     * @return the cached section name for the source runnable type of a task
+     */
+    @NonNull
+    String sectionName(@NonNull Class<?> type) {
+        String name = sectionNames.get(type);
+        if (name == null) {
+            String typeName = type.getName();
+            name = prefix + " " + typeName.substring(typeName.lastIndexOf('.') + 1);
+            if (name.length() > MAX_SECTION_NAME_LENGTH) {
+                name = name.substring(0, MAX_SECTION_NAME_LENGTH);
+            }
+            sectionNames.putIfAbsent(type, name);
+        }
+        return name;
+    }
+
+    static void beginAsync(@NonNull String name, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(name, cookie);
+        }
+    }
+
+    static void endAsync(@NonNull String name, int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(name, cookie);
+        }
+    }
+
+    static void begin(@NonNull String name) {
+        Trace.beginSection(name);
+    }
+
+    static void end() {
+        Trace.endSection();
+    }
+
+    private static boolean isTraceEnabled() {
+        // Before Q there is no public API to check, sections are just dropped when nobody traces
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.Q || Trace.isEnabled();
+    }
+}
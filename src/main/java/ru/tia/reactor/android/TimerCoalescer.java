@@ -0,0 +1,116 @@
+package ru.tia.reactor.android;
+
+import reactor.util.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Coalesces delayed tasks of an {@link EventLoopScheduler} with overlapping tolerance windows into one looper
+ * message.
+ * <p>
+ * A task due at {@code t} with tolerance {@code tol} may be run at any time in {@code [t, t + tol]}. It joins the
+ * earliest pending wakeup inside its window, or posts a new wakeup at the end of the window, so later tasks have
+ * the best chance to join it.
+ */
+final class TimerCoalescer {
+
+    @NonNull
+    private final MessageLoop loop;
+    private final TreeMap<Long, Wakeup> wakeups = new TreeMap<>(); // guarded by itself
+
+    TimerCoalescer(@NonNull MessageLoop loop) {
+        this.loop = loop;
+    }
+
+    /**
+     * @param toleranceMs how late the task may be run, positive
+     */
+    void offer(@NonNull SchedulerTask task, long toleranceMs) {
+        long runAtMs = task.runAtMs();
+        Wakeup wakeup;
+        boolean isNew = false;
+        synchronized (wakeups) {
+            Map.Entry<Long, Wakeup> e = wakeups.ceilingEntry(runAtMs);
+            if (e != null && e.getKey() - runAtMs <= toleranceMs) {
+                wakeup = e.getValue();
+            } else {
+                wakeup = new Wakeup(runAtMs + toleranceMs);
+                wakeups.put(wakeup.atMs, wakeup);
+                isNew = true;
+            }
+            wakeup.tasks.add(task);
+            wakeup.live++;
+            task.wakeup = wakeup;
+        }
+        if (isNew) {
+            loop.sendAtTime(wakeup, this /* token */, wakeup.atMs);
+        }
+        // in case of racing with dispose() of the task that has missed the wakeup
+        if (task.isDisposed()) {
+            wakeup.remove(task);
+        }
+    }
+
+    /**
+     * Remove all pending wakeups, their tasks are not run.
+     */
+    void clear() {
+        synchronized (wakeups) {
+            for (Wakeup wakeup : wakeups.values()) {
+                wakeup.done = true;
+            }
+            wakeups.clear();
+        }
+        loop.removeAll(this /* token */);
+    }
+
+    final class Wakeup implements Runnable {
+        final long atMs;
+        final List<SchedulerTask> tasks = new ArrayList<>(); // guarded by wakeups
+        int live; // tasks not disposed yet, guarded by wakeups
+        boolean done; // run or removed, guarded by wakeups
+
+        Wakeup(long atMs) {
+            this.atMs = atMs;
+        }
+
+        /**
+         * Called on dispose of the task. The wakeup of the last live task is removed from the looper.
+         */
+        void remove(@NonNull SchedulerTask task) {
+            synchronized (wakeups) {
+                // a task is counted off once
+                if (task.wakeup != this) {
+                    return;
+                }
+                task.wakeup = null;
+                if (done || --live > 0) {
+                    return;
+                }
+                done = true;
+                wakeups.remove(atMs);
+            }
+            loop.remove(this);
+        }
+
+        @Override
+        public void run() {
+            synchronized (wakeups) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                wakeups.remove(atMs);
+            }
+            // no task joins or leaves a done wakeup, so its list is read without the lock
+            for (SchedulerTask task : tasks) {
+                if (!task.isDisposed()) {
+                    task.run();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package ru.tia.reactor.android;
+
+import reactor.util.annotation.NonNull;
+import reactor.util.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MessageLoop} with a virtual clock. Tasks are run on the thread that advances the clock.
+ *
+ * @see VirtualTimeLooperScheduler
+ */
+final class VirtualMessageLoop implements MessageLoop {
+
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+    private long sequence;  // guarded by queue
+    private volatile long nowMs;
+
+    @Override
+    public void sendAtTime(@NonNull Runnable task, @NonNull Object token, long uptimeMs) {
+        synchronized (queue) {
+            queue.add(new Entry(task, token, uptimeMs, sequence++));
+        }
+    }
+
+    @Override
+    public void sendAtFrontOfQueue(@NonNull Runnable task) {
+        synchronized (queue) {
+            queue.add(new Entry(task, null, Long.MIN_VALUE, -(sequence++)));
+        }
+    }
+
+    @Override
+    public void remove(@NonNull Runnable task) {
+        synchronized (queue) {
+            Iterator<Entry> it = queue.iterator();
+            while (it.hasNext()) {
+                if (it.next().task == task) it.remove();
+            }
+        }
+    }
+
+    @Override
+    public void removeAll(@NonNull Object token) {
+        synchronized (queue) {
+            Iterator<Entry> it = queue.iterator();
+            while (it.hasNext()) {
+                if (it.next().token == token) it.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the number of pending messages
+     */
+    int size() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    @Override
+    public long uptimeMillis() {
+        return nowMs;
+    }
+
+    @Override
+    public long now(@NonNull TimeUnit unit) {
+        return unit.convert(nowMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    @NonNull
+    public String name() {
+        return "virtual";
+    }
+
+    /**
+     * Move the clock forward by {@code delayMs} running all tasks that become due in order of their time.
+     */
+    void advanceTimeBy(long delayMs) {
+        long targetMs = nowMs + Math.max(delayMs, 0);
+        for (;;) {
+            Entry entry;
+            synchronized (queue) {
+                entry = queue.peek();
+                if (entry == null || entry.whenMs > targetMs) {
+                    break;
+                }
+                queue.poll();
+                if (entry.whenMs > nowMs) {
+                    nowMs = entry.whenMs;
+                }
+            }
+            entry.task.run();
+        }
+        nowMs = targetMs;
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        final Runnable task;
+        @Nullable
+        final Object token;
+        final long whenMs;
+        final long sequence;
+
+        Entry(Runnable task, @Nullable Object token, long whenMs, long sequence) {
+            this.task = task;
+            this.token = token;
+            this.whenMs = whenMs;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            int c = Long.compare(whenMs, o.whenMs);
+            return c != 0 ? c : Long.compare(sequence, o.sequence);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package ru.tia.reactor.android;
+
+import reactor.core.Disposable;
+import reactor.core.Scannable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.annotation.NonNull;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A looper {@link Scheduler} with a virtual clock, for tests of code bound to {@link AndroidSchedulers#mainThread()}
+ * or {@link AndroidSchedulers#from(android.os.Looper) other loopers}.
+ * <p>
+ * The scheduler has the same task and worker semantics as the looper schedulers, but no task is run until the
+ * clock is advanced manually by {@link #advanceTime()} or {@link #advanceTimeBy(Duration)}. Tasks are run on the
+ * thread that advances the clock, so hour-long intervals and timeouts are tested instantly:
+ * <pre>
+ * VirtualTimeLooperScheduler scheduler = VirtualTimeLooperScheduler.create();
+ * Flux.interval(Duration.ofHours(1), scheduler).subscribe(values::add);
+ * scheduler.advanceTimeBy(Duration.ofHours(3)); // values == [0, 1, 2]
+ * </pre>
+ */
+public final class VirtualTimeLooperScheduler implements Scheduler, Scannable {
+
+    private final VirtualMessageLoop loop;
+    final EventLoopScheduler delegate;
+
+    private VirtualTimeLooperScheduler(boolean batchHandoff) {
+        this.loop = new VirtualMessageLoop();
+        this.delegate = new EventLoopScheduler(loop, batchHandoff);
+    }
+
+    /**
+     * Creates a new scheduler with the clock at 0.
+     */
+    @NonNull
+    public static VirtualTimeLooperScheduler create() {
+        return new VirtualTimeLooperScheduler(EventLoopScheduler.BATCH_HANDOFF);
+    }
+
+    /**
+     * @param batchHandoff if true, immediate tasks are handed over to the looper in batches by {@link HandoffQueue}
+     */
+    @NonNull
+    static VirtualTimeLooperScheduler create(boolean batchHandoff) {
+        return new VirtualTimeLooperScheduler(batchHandoff);
+    }
+
+    /**
+     * Run the tasks that are due at the current virtual time.
+     */
+    public void advanceTime() {
+        loop.advanceTimeBy(0);
+    }
+
+    /**
+     * Move the virtual clock forward by {@code delayTime} running all tasks that become due in order of their time.
+     *
+     * @param delayTime the amount of time to move the clock forward
+     */
+    public void advanceTimeBy(@NonNull Duration delayTime) {
+        Objects.requireNonNull(delayTime, "delayTime == null");
+        loop.advanceTimeBy(delayTime.toMillis());
+    }
+
+    /**
+     * @return the number of messages pending in the virtual looper queue
+     */
+    int pendingMessages() {
+        return loop.size();
+    }
+
+    @Override
+    @NonNull
+    public Disposable schedule(@NonNull Runnable task) {
+        return delegate.schedule(task);
+    }
+
+    @Override
+    @NonNull
+    public Disposable schedule(@NonNull Runnable task, long delay, @NonNull TimeUnit unit) {
+        return delegate.schedule(task, delay, unit);
+    }
+
+    @Override
+    @NonNull
+    public Disposable schedulePeriodically(@NonNull Runnable task, long initialDelay, long period,
+                                           @NonNull TimeUnit unit) {
+        return delegate.schedulePeriodically(task, initialDelay, period, unit);
+    }
+
+    @Override
+    @NonNull
+    public Worker createWorker() {
+        return delegate.createWorker();
+    }
+
+    @Override
+    public long now(@NonNull TimeUnit unit) {
+        return loop.now(unit);
+    }
+
+    @Override
+    public void init() {
+        delegate.init();
+    }
+
+    @Override
+    public void dispose() {
+        delegate.dispose();
+    }
+
+    @Override
+    @NonNull
+    public Mono<Void> disposeGracefully() {
+        return delegate.disposeGracefully();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return delegate.isDisposed();
+    }
+
+    @Override
+    public Object scanUnsafe(@NonNull Attr key) {
+        return delegate.scanUnsafe(key);
+    }
+
+    @Override
+    @NonNull
+    public Stream<? extends Scannable> inners() {
+        return delegate.inners();
+    }
+
+    @Override
+    @NonNull
+    public String toString() {
+        return delegate.toString();
+    }
+}
@@ -0,0 +1,201 @@
+package ru.tia.reactor.android;
+
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DeadlineQueueTest {
+
+    private final VirtualTimeLooperScheduler scheduler = VirtualTimeLooperScheduler.create();
+
+    @Test
+    public void distantDeadlineKeepsFifoOrder() {
+        List<String> order = new ArrayList<>();
+        scheduler.schedule(() -> order.add("ordinary"));
+        AndroidSchedulers.scheduleWithDeadline(scheduler, () -> order.add("deadline"),
+                DeadlineQueue.MARGIN_MS + 100, TimeUnit.MILLISECONDS);
+
+        scheduler.advanceTime();
+
+        assertEquals(Arrays.asList("ordinary", "deadline"), order);
+    }
+
+    @Test
+    public void closeDeadlineOvertakesBacklog() {
+        List<String> order = new ArrayList<>();
+        scheduler.schedule(() -> order.add("ordinary"));
+        AndroidSchedulers.scheduleWithDeadline(scheduler, () -> order.add("deadline"), 0, TimeUnit.MILLISECONDS);
+
+        scheduler.advanceTime();
+
+        assertEquals(Arrays.asList("deadline", "ordinary"), order);
+        assertEquals(0, AndroidSchedulers.deadlineMisses(scheduler));
+    }
+
+    @Test
+    public void earliestDeadlineFirst() {
+        List<String> order = new ArrayList<>();
+        AndroidSchedulers.scheduleWithDeadline(scheduler, () -> order.add("late"), 1, TimeUnit.SECONDS);
+        AndroidSchedulers.scheduleWithDeadline(scheduler, () -> order.add("early"), 500, TimeUnit.MILLISECONDS);
+
+        scheduler.advanceTime();
+
+        assertEquals(Arrays.asList("early", "late"), order);
+        assertEquals(0, scheduler.pendingMessages());
+    }
+
+    @Test
+    public void workerOfDeadlineViewSchedulesWithDeadline() {
+        Scheduler.Worker worker = AndroidSchedulers.withDeadline(scheduler, Duration.ZERO).createWorker();
+        List<String> order = new ArrayList<>();
+        scheduler.schedule(() -> order.add("ordinary"));
+        worker.schedule(() -> order.add("deadline"));
+
+        scheduler.advanceTime();
+
+        assertEquals(Arrays.asList("deadline", "ordinary"), order);
+        worker.dispose();
+    }
+
+    @Test
+    public void publishOnDeadlineView() {
+        Scheduler view = AndroidSchedulers.withDeadline(scheduler, Duration.ofMillis(16));
+        StepVerifier.create(Flux.range(1, 3).publishOn(view))
+                .then(scheduler::advanceTime)
+                .expectNext(1, 2, 3)
+                .verifyComplete();
+        assertEquals(0, AndroidSchedulers.deadlineMisses(scheduler));
+    }
+
+    @Test
+    public void deadlineAndToleranceViewsCombine() {
+        Scheduler both = AndroidSchedulers.withDeadline(
+                AndroidSchedulers.withDelayTolerance(scheduler, Duration.ofSeconds(5)), Duration.ZERO);
+        assertEquals(AndroidSchedulers.withDelayTolerance(
+                AndroidSchedulers.withDeadline(scheduler, Duration.ZERO), Duration.ofSeconds(5)).toString(),
+                both.toString());
+
+        for (Scheduler.Worker worker : Arrays.asList(both.createWorker(), null)) {
+            List<String> order = new ArrayList<>();
+            scheduler.schedule(() -> order.add("ordinary"));
+            if (worker != null) {
+                worker.schedule(() -> order.add("deadline"));
+                worker.schedule(() -> order.add("tolerant"), 1, TimeUnit.SECONDS);
+                worker.schedule(() -> order.add("tolerant"), 2, TimeUnit.SECONDS);
+            } else {
+                both.schedule(() -> order.add("deadline"));
+                both.schedule(() -> order.add("tolerant"), 1, TimeUnit.SECONDS);
+                both.schedule(() -> order.add("tolerant"), 2, TimeUnit.SECONDS);
+            }
+            // one coalesced wakeup for both delayed tasks
+            assertEquals(3, scheduler.pendingMessages());
+
+            scheduler.advanceTimeBy(Duration.ofSeconds(6));
+            assertEquals(Arrays.asList("deadline", "ordinary", "tolerant", "tolerant"), order);
+        }
+    }
+
+    @Test
+    public void lagIsMeasuredFromTimeZero() {
+        ManualLoop loop = new ManualLoop();
+        DeadlineQueue queue = new DeadlineQueue(loop, new EventLoopScheduler(loop));
+        queue.offer(task(loop), 100);
+        assertFalse(loop.lastFront);
+
+        loop.nowMs = 40;
+        loop.runAll();
+
+        assertEquals(10, queue.lagMs());
+    }
+
+    @Test
+    public void lagEstimateRecoversAfterStall() {
+        ManualLoop loop = new ManualLoop();
+        DeadlineQueue queue = new DeadlineQueue(loop, new EventLoopScheduler(loop));
+        queue.offer(task(loop), 100);
+        loop.nowMs = 80;
+        loop.runAll();
+        assertEquals(20, queue.lagMs());
+
+        // the looper keeps up again: tasks with a 16ms deadline stop jumping the queue
+        int front = 0;
+        for (int i = 0; i < 1000; i++) {
+            queue.offer(task(loop), loop.nowMs + 16);
+            if (loop.lastFront) {
+                front++;
+            }
+            loop.runAll();
+        }
+        assertTrue("tasks posted to the front: " + front, front < 10);
+        assertFalse(loop.lastFront);
+    }
+
+    private static SchedulerTask task(MessageLoop loop) {
+        Runnable run = () -> { };
+        return new SchedulerTask(loop, run, r -> { }, run, loop.uptimeMillis(), loop.uptimeMillis());
+    }
+
+    /**
+     * A loop whose messages are run by the test at the time it sets.
+     */
+    private static final class ManualLoop implements MessageLoop {
+        final ArrayDeque<Runnable> messages = new ArrayDeque<>();
+        long nowMs;
+        boolean lastFront;
+
+        void runAll() {
+            Runnable r;
+            while ((r = messages.poll()) != null) {
+                r.run();
+            }
+        }
+
+        @Override
+        public void sendAtTime(Runnable task, Object token, long uptimeMs) {
+            lastFront = false;
+            messages.addLast(task);
+        }
+
+        @Override
+        public void sendAtFrontOfQueue(Runnable task) {
+            lastFront = true;
+            messages.addFirst(task);
+        }
+
+        @Override
+        public void remove(Runnable task) {
+            messages.remove(task);
+        }
+
+        @Override
+        public void removeAll(Object token) {
+        }
+
+        @Override
+        public long uptimeMillis() {
+            return nowMs;
+        }
+
+        @Override
+        public long now(TimeUnit unit) {
+            return unit.convert(nowMs, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public String name() {
+            return "manual";
+        }
+    }
+}
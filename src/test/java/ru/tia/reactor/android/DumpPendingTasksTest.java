@@ -0,0 +1,90 @@
+package ru.tia.reactor.android;
+
+import org.junit.Test;
+import reactor.core.Scannable;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class DumpPendingTasksTest {
+
+    private final VirtualTimeLooperScheduler scheduler = VirtualTimeLooperScheduler.create();
+
+    static final class Work implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    static final class Tick implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+
+    @Test
+    public void dumpListsPlainAndPeriodicTasksPerWorker() {
+        Scheduler.Worker plain = scheduler.createWorker();
+        Scheduler.Worker periodic = scheduler.createWorker();
+        plain.schedule(new Work(), 100, TimeUnit.MILLISECONDS);
+        scheduler.advanceTimeBy(Duration.ofMillis(10));
+        plain.schedule(new Work(), 200, TimeUnit.MILLISECONDS);
+        periodic.schedulePeriodically(new Tick(), 50, 50, TimeUnit.MILLISECONDS);
+        scheduler.advanceTimeBy(Duration.ofMillis(50)); // Tick has run once, at 60
+
+        String work = Work.class.getName();
+        String tick = Tick.class.getName();
+        assertEquals(scheduler + ": 2 workers\n"
+                        + "  " + scheduler + ".worker#1: 2 pending\n"
+                        + "    " + work + " age=50ms runAt=+150ms\n"
+                        + "    " + work + " age=60ms runAt=+40ms\n"
+                        + "  " + scheduler + ".worker#2: 1 pending\n"
+                        + "    " + tick + " age=0ms runAt=+50ms periodic\n",
+                AndroidSchedulers.dumpPendingTasks(scheduler));
+    }
+
+    @Test
+    public void innersExposeLooperAttrs() {
+        Scheduler.Worker worker = scheduler.createWorker();
+        worker.schedule(new Work(), 100, TimeUnit.MILLISECONDS);
+        worker.schedulePeriodically(new Tick(), 30, 30, TimeUnit.MILLISECONDS);
+        scheduler.advanceTimeBy(Duration.ofMillis(40));
+
+        List<Scannable> tasks = Scannable.from(worker).inners().collect(Collectors.toList());
+        assertEquals(2, tasks.size());
+        Scannable plain = tasks.stream().filter(t -> t.name().equals(Work.class.getName())).findFirst().get();
+        assertEquals(Long.valueOf(0), plain.scan(LooperAttr.ENQUEUED_AT));
+        assertEquals(Long.valueOf(100), plain.scan(LooperAttr.RUN_AT));
+        assertEquals(Long.valueOf(40), plain.scan(LooperAttr.AGE));
+        assertEquals(Boolean.FALSE, plain.scan(LooperAttr.PERIODIC));
+
+        Scannable periodic = tasks.stream().filter(t -> t.name().equals(Tick.class.getName())).findFirst().get();
+        assertEquals(Long.valueOf(30), periodic.scan(LooperAttr.ENQUEUED_AT));
+        assertEquals(Long.valueOf(60), periodic.scan(LooperAttr.RUN_AT));
+        assertEquals(Long.valueOf(10), periodic.scan(LooperAttr.AGE));
+        assertEquals(Boolean.TRUE, periodic.scan(LooperAttr.PERIODIC));
+
+        worker.dispose();
+        assertEquals(0, Scannable.from(worker).inners().count());
+    }
+
+    @Test
+    public void reusedWorkerGetsNewName() {
+        Scheduler.Worker first = scheduler.createWorker();
+        String firstName = Scannable.from(first).name();
+        first.dispose();
+        scheduler.advanceTime();
+
+        Scheduler.Worker second = scheduler.createWorker();
+        second.schedule(new Work(), 10, TimeUnit.MILLISECONDS);
+        assertNotEquals(firstName, Scannable.from(second).name());
+        assertEquals(0, Scannable.from(first).inners().count());
+        second.dispose();
+    }
+}
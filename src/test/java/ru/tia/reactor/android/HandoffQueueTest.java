@@ -0,0 +1,120 @@
+package ru.tia.reactor.android;
+
+import org.junit.Test;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HandoffQueueTest {
+
+    private final VirtualTimeLooperScheduler scheduler = VirtualTimeLooperScheduler.create(true);
+
+    @Test
+    public void batchIsPostedAsOneMessage() {
+        List<Integer> order = new ArrayList<>();
+        Scheduler.Worker worker = scheduler.createWorker();
+        for (int i = 0; i < 100; i++) {
+            int n = i;
+            if (i % 2 == 0) {
+                worker.schedule(() -> order.add(n));
+            } else {
+                scheduler.schedule(() -> order.add(n));
+            }
+        }
+        assertEquals(1, scheduler.pendingMessages());
+
+        scheduler.advanceTime();
+
+        assertEquals(100, order.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+        assertEquals(0, scheduler.pendingMessages());
+    }
+
+    @Test
+    public void tasksOfferedWhileDrainingRunInNextMessage() {
+        List<String> order = new ArrayList<>();
+        scheduler.schedule(() -> {
+            order.add("a");
+            scheduler.schedule(() -> order.add("c"));
+        });
+        scheduler.schedule(() -> order.add("b"));
+        assertEquals(1, scheduler.pendingMessages());
+
+        scheduler.advanceTime();
+
+        assertEquals(java.util.Arrays.asList("a", "b", "c"), order);
+        assertEquals(0, scheduler.pendingMessages());
+    }
+
+    @Test
+    public void disposedTasksAreSkipped() {
+        List<String> order = new ArrayList<>();
+        Disposable a = scheduler.schedule(() -> order.add("a"));
+        scheduler.schedule(() -> order.add("b"));
+        a.dispose();
+
+        scheduler.advanceTime();
+
+        assertEquals(java.util.Collections.singletonList("b"), order);
+    }
+
+    @Test
+    public void schedulerDisposeRemovesDrainMessage() {
+        Scheduler.Worker worker = scheduler.createWorker();
+        worker.schedule(() -> { });
+        scheduler.dispose();
+        assertEquals(0, scheduler.pendingMessages());
+    }
+
+    @Test
+    public void tasksOfEachProducerRunInOrder() throws Exception {
+        int producers = 4;
+        int tasks = 10_000;
+        ConcurrentLinkedQueue<int[]> runs = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < tasks; i++) {
+                    int n = i;
+                    scheduler.schedule(() -> runs.add(new int[]{producer, n}));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        while (runs.size() < producers * tasks) {
+            scheduler.advanceTime();
+            for (Future<?> f : futures) {
+                if (f.isDone()) {
+                    f.get();
+                }
+            }
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        int[] next = new int[producers];
+        for (int[] run : runs) {
+            assertEquals("order of producer " + run[0], next[run[0]]++, run[1]);
+        }
+        scheduler.advanceTime();
+        assertEquals(0, scheduler.pendingMessages());
+    }
+}
@@ -0,0 +1,142 @@
+package ru.tia.reactor.android;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LooperExecutorServiceTest {
+
+    private final VirtualTimeLooperScheduler scheduler = VirtualTimeLooperScheduler.create();
+    private final ScheduledExecutorService executor = AndroidSchedulers.toExecutorService(scheduler);
+
+    @Test
+    public void scheduledCallableCompletesFuture() throws Exception {
+        ScheduledFuture<String> future = executor.schedule(() -> "done", 10, TimeUnit.MILLISECONDS);
+        assertEquals(10, future.getDelay(TimeUnit.MILLISECONDS));
+        assertFalse(future.isDone());
+
+        scheduler.advanceTimeBy(Duration.ofMillis(10));
+
+        assertTrue(future.isDone());
+        assertEquals("done", future.get());
+        assertEquals(0, future.getDelay(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void submittedTaskFailureIsReported() throws Exception {
+        Future<?> future = executor.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+        scheduler.advanceTime();
+
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void getTimesOutWhileTaskIsPending() throws Exception {
+        Future<String> future = executor.submit(() -> "done");
+        try {
+            future.get(1, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (TimeoutException expected) {
+        }
+        scheduler.advanceTime();
+        assertEquals("done", future.get(1, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void fixedDelayTaskRunsUntilCancelled() {
+        AtomicInteger runs = new AtomicInteger();
+        ScheduledFuture<?> future = executor.scheduleWithFixedDelay(runs::incrementAndGet, 0, 10, TimeUnit.MILLISECONDS);
+
+        scheduler.advanceTimeBy(Duration.ofMillis(25));
+        assertEquals(3, runs.get());
+        assertEquals(5, future.getDelay(TimeUnit.MILLISECONDS));
+
+        assertTrue(future.cancel(false));
+        scheduler.advanceTimeBy(Duration.ofMillis(100));
+        assertEquals(3, runs.get());
+        assertEquals(0, scheduler.pendingMessages());
+    }
+
+    @Test
+    public void shutdownNowCancelsPendingFutures() throws Exception {
+        ScheduledFuture<String> delayed = executor.schedule(() -> "done", 1, TimeUnit.SECONDS);
+        Future<?> submitted = executor.submit(() -> { });
+        ScheduledFuture<?> periodic = executor.scheduleAtFixedRate(() -> { }, 0, 10, TimeUnit.MILLISECONDS);
+        Future<?> completed = executor.submit(() -> { });
+        scheduler.advanceTime();
+        AtomicInteger pendingRuns = new AtomicInteger();
+        Future<?> pending = executor.submit(pendingRuns::incrementAndGet);
+
+        List<Runnable> notStarted = executor.shutdownNow();
+
+        assertEquals(3, notStarted.size());
+        assertTrue(notStarted.containsAll(Arrays.asList(delayed, periodic, pending)));
+        for (Future<?> f : Arrays.asList(delayed, periodic, pending)) {
+            assertTrue(f.isCancelled());
+            try {
+                f.get();
+                fail();
+            } catch (CancellationException expected) {
+            }
+        }
+        assertTrue(submitted.isDone() && !submitted.isCancelled());
+        assertTrue(completed.isDone() && !completed.isCancelled());
+        assertTrue(executor.isShutdown());
+        assertTrue(executor.isTerminated());
+        // with batched handoff the drain message is shared by all workers and only skips the disposed task
+        scheduler.advanceTime();
+        assertEquals(0, pendingRuns.get());
+        assertEquals(0, scheduler.pendingMessages());
+    }
+
+    @Test
+    public void shutdownCancelsPeriodicAndRunsPendingTasks() throws Exception {
+        AtomicInteger ticks = new AtomicInteger();
+        ScheduledFuture<?> fixedRate = executor.scheduleAtFixedRate(ticks::incrementAndGet, 0, 10, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> fixedDelay = executor.scheduleWithFixedDelay(ticks::incrementAndGet, 0, 10, TimeUnit.MILLISECONDS);
+        scheduler.advanceTimeBy(Duration.ofMillis(25));
+        assertEquals(6, ticks.get());
+        ScheduledFuture<String> pending = executor.schedule(() -> "done", 100, TimeUnit.MILLISECONDS);
+
+        executor.shutdown();
+
+        assertTrue(fixedRate.isCancelled());
+        assertTrue(fixedDelay.isCancelled());
+        assertFalse(executor.isTerminated());
+        scheduler.advanceTimeBy(Duration.ofMillis(100));
+        assertEquals("done", pending.get());
+        assertEquals(6, ticks.get());
+        assertTrue(executor.isTerminated());
+        assertTrue(executor.awaitTermination(0, TimeUnit.MILLISECONDS));
+        assertEquals(0, scheduler.pendingMessages());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void rejectsAfterShutdown() {
+        executor.shutdownNow();
+        executor.submit(() -> { });
+    }
+}
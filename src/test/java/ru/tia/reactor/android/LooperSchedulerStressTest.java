@@ -0,0 +1,326 @@
+package ru.tia.reactor.android;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import reactor.core.Disposable;
+import reactor.core.Scannable;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Concurrent schedule, cancel and dispose of tasks and workers on a {@link VirtualTimeLooperScheduler} whose clock is
+ * advanced by a dedicated thread, the stand-in of the Looper thread. Every test runs with immediate tasks posted one by
+ * one and with {@link HandoffQueue batched handoff}.
+ */
+@RunWith(Parameterized.class)
+public class LooperSchedulerStressTest {
+
+    private static final int THREADS = 4;
+    private static final int ITERATIONS = 2_000;
+
+    @Parameterized.Parameters(name = "batchHandoff={0}")
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(new Object[]{false}, new Object[]{true});
+    }
+
+    private final boolean batchHandoff;
+    private VirtualTimeLooperScheduler scheduler;
+    private final AtomicBoolean looperStopped = new AtomicBoolean();
+    private Thread looper;
+    private ExecutorService executor;
+
+    public LooperSchedulerStressTest(boolean batchHandoff) {
+        this.batchHandoff = batchHandoff;
+    }
+
+    @Before
+    public void setUp() {
+        scheduler = VirtualTimeLooperScheduler.create(batchHandoff);
+        looper = new Thread(() -> {
+            while (!looperStopped.get()) {
+                scheduler.advanceTimeBy(Duration.ofMillis(1));
+            }
+        }, "virtual-looper");
+        looper.start();
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        stopLooper();
+        executor.shutdownNow();
+        scheduler.dispose();
+    }
+
+    @Test
+    public void scheduleAndCancel() throws Exception {
+        Queue<Probe> probes = new ConcurrentLinkedQueue<>();
+        runConcurrently(random -> {
+            Probe probe = new Probe();
+            probes.add(probe);
+            Disposable d = scheduler.schedule(probe, random.nextInt(3), TimeUnit.MILLISECONDS);
+            if (random.nextBoolean()) {
+                probe.cancel(d);
+            }
+        });
+        quiesce();
+
+        assertRuns(probes);
+        assertNoLeakedTasks();
+    }
+
+    @Test
+    public void workerDisposeNeverHandsWorkerToTwoOwners() throws Exception {
+        Map<EventLoopWorker, Boolean> owned = new ConcurrentHashMap<>();
+        AtomicInteger doubleHandOuts = new AtomicInteger();
+        AtomicInteger disposedUnderOwner = new AtomicInteger();
+        Queue<Probe> probes = new ConcurrentLinkedQueue<>();
+        runConcurrently(random -> {
+            PooledWorker worker = (PooledWorker) scheduler.createWorker();
+            if (owned.putIfAbsent(worker.worker(), Boolean.TRUE) != null) {
+                doubleHandOuts.incrementAndGet();
+            }
+            List<Probe> own = new ArrayList<>();
+            try {
+                for (int i = random.nextInt(3); i >= 0; i--) {
+                    Probe probe = new Probe();
+                    // tasks run on the looper thread concurrently with the dispose below
+                    worker.schedule(probe, random.nextInt(2), TimeUnit.MILLISECONDS);
+                    own.add(probe);
+                }
+            } catch (RejectedExecutionException e) {
+                disposedUnderOwner.incrementAndGet();
+            }
+            if (worker.isDisposed()) {
+                disposedUnderOwner.incrementAndGet();
+            }
+            owned.remove(worker.worker());
+            worker.dispose();
+            for (Probe probe : own) {
+                probe.cancelled = true;
+            }
+            probes.addAll(own);
+            // a stale handle must not affect the next owner of the recycled worker
+            worker.dispose();
+            assertTrue("stale handle is disposed", worker.isDisposed());
+        });
+        quiesce();
+
+        assertEquals("workers handed out to two owners", 0, doubleHandOuts.get());
+        assertEquals("workers disposed under their owner", 0, disposedUnderOwner.get());
+        assertRuns(probes);
+        assertNoLeakedTasks();
+        assertEquals("live workers", 0, scheduler.inners().count());
+    }
+
+    @Test
+    public void workerDisposeGracefullyRunsPendingTasks() throws Exception {
+        Queue<Probe> probes = new ConcurrentLinkedQueue<>();
+        AtomicInteger accepted = new AtomicInteger();
+        runConcurrently(random -> {
+            PooledWorker worker = (PooledWorker) scheduler.createWorker();
+            for (int i = random.nextInt(3); i >= 0; i--) {
+                Probe probe = new Probe();
+                probes.add(probe);
+                worker.schedule(probe, random.nextInt(3), TimeUnit.MILLISECONDS);
+            }
+            worker.disposeGracefully();
+            try {
+                worker.schedule(new Probe());
+                accepted.incrementAndGet();
+            } catch (RejectedExecutionException expected) {
+                // the worker is shutting down
+            }
+        });
+        quiesce();
+
+        assertEquals("tasks accepted after disposeGracefully()", 0, accepted.get());
+        assertRuns(probes);
+        assertNoLeakedTasks();
+        assertEquals("live workers", 0, scheduler.inners().count());
+    }
+
+    @Test
+    public void schedulerDisposeGracefullyRunsPendingTasks() throws Exception {
+        Queue<Probe> probes = new ConcurrentLinkedQueue<>();
+        runConcurrently(random -> {
+            Probe probe = new Probe();
+            probes.add(probe);
+            scheduler.schedule(probe, random.nextInt(3), TimeUnit.MILLISECONDS);
+        });
+        scheduler.disposeGracefully().block(Duration.ofSeconds(30));
+
+        assertTrue(scheduler.isDisposed());
+        assertRuns(probes);
+    }
+
+    @Test
+    public void periodicTasksAreRescheduledUntilCancelled() throws Exception {
+        Queue<AtomicLong> ticks = new ConcurrentLinkedQueue<>();
+        Queue<Disposable> cancels = new ConcurrentLinkedQueue<>();
+        // fewer tasks: the fixed rate makes them catch up with the virtual clock racing ahead meanwhile
+        runConcurrently(ITERATIONS / 10, random -> {
+            AtomicLong counter = new AtomicLong();
+            ticks.add(counter);
+            if (random.nextBoolean()) {
+                cancels.add(scheduler.schedulePeriodically(counter::incrementAndGet,
+                        random.nextInt(2), 1, TimeUnit.MILLISECONDS));
+            } else {
+                // the periodic task is cancelled by disposing its worker
+                Scheduler.Worker worker = scheduler.createWorker();
+                worker.schedulePeriodically(counter::incrementAndGet, random.nextInt(2), 1, TimeUnit.MILLISECONDS);
+                cancels.add(worker);
+            }
+        });
+        await("every periodic task ticks", () -> ticks.stream().allMatch(t -> t.get() >= 3));
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                Disposable d;
+                while ((d = cancels.poll()) != null) {
+                    d.dispose();
+                }
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get(30, TimeUnit.SECONDS);
+        }
+        stopLooper();
+        long[] cancelled = ticks.stream().mapToLong(AtomicLong::get).toArray();
+        scheduler.advanceTimeBy(Duration.ofHours(1));
+
+        assertTrue("ticks after cancel", Arrays.equals(cancelled,
+                ticks.stream().mapToLong(AtomicLong::get).toArray()));
+        assertNoLeakedTasks();
+    }
+
+    @Test
+    public void disposeGracefullyStopsPendingPeriodicTasks() throws Exception {
+        Queue<Probe> probes = new ConcurrentLinkedQueue<>();
+        runConcurrently(ITERATIONS / 10, random -> {
+            PooledWorker worker = (PooledWorker) scheduler.createWorker();
+            worker.schedulePeriodically(() -> { }, random.nextInt(3), 1 + random.nextInt(3), TimeUnit.MILLISECONDS);
+            Probe probe = new Probe();
+            probes.add(probe);
+            worker.schedule(probe, random.nextInt(3), TimeUnit.MILLISECONDS);
+            if (random.nextBoolean()) {
+                worker.disposeGracefully();
+            }
+            scheduler.schedulePeriodically(() -> { }, random.nextInt(3), 1 + random.nextInt(3), TimeUnit.MILLISECONDS);
+        });
+        scheduler.disposeGracefully().block(Duration.ofSeconds(30));
+
+        assertTrue(scheduler.isDisposed());
+        assertRuns(probes);
+        stopLooper();
+        assertNoLeakedTasks();
+    }
+
+    private interface Iteration {
+        void run(ThreadLocalRandom random);
+    }
+
+    private void runConcurrently(Iteration iteration) throws Exception {
+        runConcurrently(ITERATIONS, iteration);
+    }
+
+    private void runConcurrently(int iterations, Iteration iteration) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < iterations; i++) {
+                    iteration.run(random);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private void stopLooper() throws InterruptedException {
+        looperStopped.set(true);
+        looper.join();
+    }
+
+    /**
+     * Stop the looper thread and run the rest of due tasks on the test thread.
+     */
+    private void quiesce() throws InterruptedException {
+        stopLooper();
+        scheduler.advanceTimeBy(Duration.ofHours(1));
+    }
+
+    private static void await(String condition, BooleanSupplier done) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!done.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("timeout: " + condition);
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private void assertNoLeakedTasks() {
+        assertEquals("pending looper messages", 0, scheduler.pendingMessages());
+        assertEquals("registered tasks", 0,
+                scheduler.inners().mapToInt(w -> w.scanOrDefault(Scannable.Attr.BUFFERED, 0)).sum());
+    }
+
+    private static void assertRuns(Collection<Probe> probes) {
+        for (Probe probe : probes) {
+            assertTrue("double run", probe.runs.get() <= 1);
+            if (!probe.cancelled) {
+                assertEquals("lost run", 1, probe.runs.get());
+            }
+        }
+    }
+
+    private static final class Probe implements Runnable {
+        final AtomicInteger runs = new AtomicInteger();
+        volatile boolean cancelled; // set once dispose() has returned
+
+        void cancel(Disposable d) {
+            d.dispose();
+            cancelled = true;
+        }
+
+        @Override
+        public void run() {
+            runs.incrementAndGet();
+        }
+    }
+}
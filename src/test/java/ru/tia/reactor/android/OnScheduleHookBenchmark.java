@@ -0,0 +1,98 @@
+package ru.tia.reactor.android;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-item cost of scheduling with and without a {@link Schedulers#onScheduleHook} installed. The hook captures a
+ * thread-local on scheduling and restores it around the run, as context propagation does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class OnScheduleHookBenchmark {
+
+    private static final String HOOK_KEY = "benchmark";
+    private static final ThreadLocal<Object> CONTEXT = new ThreadLocal<>();
+    private static final Duration TICK = Duration.ofMillis(1);
+
+    @Param({"false", "true"})
+    public boolean hooks;
+
+    private VirtualTimeLooperScheduler scheduler;
+    private Scheduler.Worker worker;
+    private VirtualTimeLooperScheduler ticker;
+    private long runs;
+
+    @Setup
+    public void setUp() {
+        if (hooks) {
+            CONTEXT.set("context");
+            Schedulers.onScheduleHook(HOOK_KEY, task -> {
+                Object captured = CONTEXT.get();
+                return () -> {
+                    Object previous = CONTEXT.get();
+                    CONTEXT.set(captured);
+                    try {
+                        task.run();
+                    } finally {
+                        CONTEXT.set(previous);
+                    }
+                };
+            });
+        }
+        scheduler = VirtualTimeLooperScheduler.create();
+        worker = scheduler.createWorker();
+        ticker = VirtualTimeLooperScheduler.create();
+        ticker.schedulePeriodically(this::run, 1, 1, TimeUnit.MILLISECONDS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ticker.dispose();
+        scheduler.dispose();
+        Schedulers.resetOnScheduleHook(HOOK_KEY);
+        CONTEXT.remove();
+    }
+
+    private void run() {
+        runs++;
+    }
+
+    /**
+     * An immediate task of a worker, as {@code publishOn} schedules for every drain.
+     */
+    @Benchmark
+    public long workerTask() {
+        worker.schedule(this::run);
+        scheduler.advanceTime();
+        return runs;
+    }
+
+    /**
+     * A tick of a periodic task, as {@code Flux.interval} runs.
+     */
+    @Benchmark
+    public long periodicTick() {
+        ticker.advanceTimeBy(TICK);
+        return runs;
+    }
+}
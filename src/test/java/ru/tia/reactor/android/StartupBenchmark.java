@@ -0,0 +1,49 @@
+package ru.tia.reactor.android;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold time of the first task of a Looper scheduler, as on app startup: every sample is taken in a fresh JVM.
+ * <p>
+ * {@code Looper.getMainLooper()} is not available on the JVM, so the scheduler runs on
+ * {@link VirtualTimeLooperScheduler}. It is the same {@link EventLoopScheduler} as {@code mainThread()} without the
+ * {@code Handler}. Reactor itself is loaded before the measurement, so only the set up of this library is measured.
+ * <p>
+ * The measured path initializes {@link AndroidSchedulers}, including the {@code Schedulers.handleError} lookup, on
+ * the first run of a task. It does not cover {@code mainThread()} itself nor the pool of
+ * {@link DisposeAwaiterRunnable}, which is built on the first {@code disposeGracefully()} only.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(40)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    @Setup(Level.Trial)
+    public void loadReactor() {
+        Schedulers.onSchedule(() -> { }).run();
+    }
+
+    @Benchmark
+    public VirtualTimeLooperScheduler firstSchedule() {
+        VirtualTimeLooperScheduler scheduler = VirtualTimeLooperScheduler.create();
+        scheduler.schedule(() -> { });
+        scheduler.advanceTime();
+        return scheduler;
+    }
+}
@@ -0,0 +1,154 @@
+package ru.tia.reactor.android;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TaskListTest {
+
+    private final TaskList tasks = new TaskList();
+
+    @Test
+    public void addAndRemove() {
+        Node a = new Node();
+        Node b = new Node();
+
+        assertTrue(tasks.add(a));
+        assertTrue(tasks.add(b));
+        assertEquals(2, tasks.size());
+
+        assertTrue(tasks.remove(a));
+        assertFalse("removed twice", tasks.remove(a));
+        assertEquals(1, tasks.size());
+        assertEquals(1, tasks.snapshot().size());
+        assertEquals(b, tasks.snapshot().get(0));
+    }
+
+    @Test
+    public void nodeIsAddedOnce() {
+        Node a = new Node();
+
+        assertTrue(tasks.add(a));
+        assertFalse(tasks.add(a));
+        tasks.remove(a);
+        assertFalse("removed node is added again", tasks.add(a));
+        assertEquals(0, tasks.size());
+    }
+
+    @Test
+    public void disposeDisposesPendingNodes() {
+        Node pending = new Node();
+        Node removed = new Node();
+        tasks.add(pending);
+        tasks.add(removed);
+        tasks.remove(removed);
+
+        tasks.dispose();
+
+        assertTrue(tasks.isDisposed());
+        assertEquals(1, pending.disposed);
+        assertEquals(0, removed.disposed);
+        assertEquals(0, tasks.size());
+        assertFalse("removed after dispose", tasks.remove(pending));
+        assertTrue(tasks.snapshot().isEmpty());
+    }
+
+    @Test
+    public void addAfterDisposeIsRejected() {
+        tasks.dispose();
+        Node a = new Node();
+
+        assertFalse(tasks.add(a));
+        assertEquals(0, tasks.size());
+        assertEquals(0, a.disposed);
+    }
+
+    @Test
+    public void resetAllowsReuse() {
+        tasks.add(new Node());
+        tasks.dispose();
+
+        tasks.reset();
+
+        assertFalse(tasks.isDisposed());
+        assertEquals(0, tasks.size());
+        assertTrue(tasks.add(new Node()));
+        assertEquals(1, tasks.size());
+    }
+
+    @Test
+    public void removedNodesArePurged() {
+        tasks.add(new Node());
+        for (int i = 0; i < 10_000; i++) {
+            Node n = new Node();
+            tasks.add(n);
+            tasks.remove(n);
+        }
+        Node last = new Node();
+        tasks.add(last);
+
+        assertEquals(2, tasks.size());
+        int length = 0;
+        for (TaskNode n = last; n != null; n = n.next) {
+            length++;
+        }
+        assertTrue("removed nodes are unlinked, chain length " + length, length < 100);
+    }
+
+    @Test
+    public void concurrentAddAndRemove() throws Exception {
+        int threads = 4;
+        int iterations = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Node>>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                List<Node> kept = new ArrayList<>();
+                for (int i = 0; i < iterations; i++) {
+                    Node n = new Node();
+                    tasks.add(n);
+                    if (i % 4 == 0) {
+                        kept.add(n);
+                    } else {
+                        tasks.remove(n);
+                    }
+                }
+                return kept;
+            }));
+        }
+        start.countDown();
+        List<Node> kept = new ArrayList<>();
+        for (Future<List<Node>> f : futures) {
+            kept.addAll(f.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        assertEquals(kept.size(), tasks.size());
+        assertEquals(kept.size(), tasks.snapshot().size());
+        tasks.dispose();
+        for (Node n : kept) {
+            assertEquals("pending node is disposed once", 1, n.disposed);
+        }
+    }
+
+    private static final class Node extends TaskNode {
+        volatile int disposed;
+
+        @Override
+        public synchronized void dispose() {
+            disposed++;
+        }
+    }
+}
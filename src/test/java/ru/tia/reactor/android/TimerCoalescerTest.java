@@ -0,0 +1,78 @@
+package ru.tia.reactor.android;
+
+import org.junit.Test;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class TimerCoalescerTest {
+
+    private final VirtualTimeLooperScheduler scheduler = VirtualTimeLooperScheduler.create();
+    private final Scheduler tolerant = AndroidSchedulers.withDelayTolerance(scheduler, Duration.ofSeconds(5));
+
+    @Test
+    public void overlappingWindowsShareOneWakeup() {
+        AtomicInteger runs = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            tolerant.schedule(runs::incrementAndGet, 1000 + i * 100, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(1, scheduler.pendingMessages());
+
+        scheduler.advanceTimeBy(Duration.ofMillis(5999));
+        assertEquals(0, runs.get());
+        scheduler.advanceTimeBy(Duration.ofMillis(1));
+        assertEquals(10, runs.get());
+        assertEquals(0, scheduler.pendingMessages());
+    }
+
+    @Test
+    public void cancellingAllTasksRemovesWakeup() {
+        List<Disposable> timers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            timers.add(tolerant.schedule(() -> { }, 5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, scheduler.pendingMessages());
+
+        for (int i = 0; i < 9; i++) {
+            timers.get(i).dispose();
+        }
+        assertEquals(1, scheduler.pendingMessages());
+        timers.get(9).dispose();
+        timers.get(9).dispose();
+        assertEquals(0, scheduler.pendingMessages());
+
+        // a new task does not join the removed wakeup
+        AtomicInteger runs = new AtomicInteger();
+        tolerant.schedule(runs::incrementAndGet, 5, TimeUnit.SECONDS);
+        scheduler.advanceTimeBy(Duration.ofSeconds(10));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void workerDisposeRemovesWakeups() {
+        Scheduler.Worker worker = tolerant.createWorker();
+        for (int i = 0; i < 10; i++) {
+            worker.schedule(() -> { }, i + 1, TimeUnit.MINUTES);
+        }
+        assertEquals(10, scheduler.pendingMessages());
+
+        worker.dispose();
+        assertEquals(0, scheduler.pendingMessages());
+    }
+
+    @Test
+    public void schedulerDisposeRemovesWakeups() {
+        for (int i = 0; i < 10; i++) {
+            tolerant.schedule(() -> { }, i + 1, TimeUnit.MINUTES);
+        }
+        scheduler.dispose();
+        assertEquals(0, scheduler.pendingMessages());
+    }
+}
@@ -0,0 +1,133 @@
+package ru.tia.reactor.android;
+
+import org.junit.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VirtualTimeLooperSchedulerTest {
+
+    private final VirtualTimeLooperScheduler scheduler = VirtualTimeLooperScheduler.create();
+
+    @Test
+    public void tasksRunOnlyWhenTimeIsAdvanced() {
+        AtomicInteger runs = new AtomicInteger();
+        scheduler.schedule(runs::incrementAndGet);
+        scheduler.schedule(runs::incrementAndGet, 10, TimeUnit.MILLISECONDS);
+        assertEquals(0, runs.get());
+
+        scheduler.advanceTime();
+        assertEquals(1, runs.get());
+
+        scheduler.advanceTimeBy(Duration.ofMillis(9));
+        assertEquals(1, runs.get());
+
+        scheduler.advanceTimeBy(Duration.ofMillis(1));
+        assertEquals(2, runs.get());
+        assertEquals(0, scheduler.pendingMessages());
+    }
+
+    @Test
+    public void tasksRunInTimeOrderThenFifo() {
+        List<String> order = new ArrayList<>();
+        scheduler.schedule(() -> order.add("c"), 20, TimeUnit.MILLISECONDS);
+        scheduler.schedule(() -> order.add("a"), 10, TimeUnit.MILLISECONDS);
+        scheduler.schedule(() -> order.add("b"), 10, TimeUnit.MILLISECONDS);
+        scheduler.schedule(() -> order.add("now"));
+
+        scheduler.advanceTimeBy(Duration.ofSeconds(1));
+
+        assertEquals(Arrays.asList("now", "a", "b", "c"), order);
+    }
+
+    @Test
+    public void nowFollowsVirtualClock() {
+        List<Long> times = new ArrayList<>();
+        scheduler.schedule(() -> times.add(scheduler.now(TimeUnit.MILLISECONDS)), 30, TimeUnit.MILLISECONDS);
+
+        scheduler.advanceTimeBy(Duration.ofMillis(100));
+
+        assertEquals(Arrays.asList(30L), times);
+        assertEquals(100, scheduler.now(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void interval() {
+        StepVerifier.create(Flux.interval(Duration.ofHours(1), scheduler).take(3))
+                .then(() -> scheduler.advanceTimeBy(Duration.ofHours(3)))
+                .expectNext(0L, 1L, 2L)
+                .verifyComplete();
+    }
+
+    @Test
+    public void periodicTaskRunsAtFixedRate() {
+        AtomicInteger ticks = new AtomicInteger();
+        Disposable d = scheduler.schedulePeriodically(ticks::incrementAndGet, 0, 10, TimeUnit.MILLISECONDS);
+
+        scheduler.advanceTimeBy(Duration.ofMillis(95));
+        assertEquals(10, ticks.get());
+
+        d.dispose();
+        scheduler.advanceTimeBy(Duration.ofSeconds(1));
+        assertEquals(10, ticks.get());
+        assertEquals(0, scheduler.pendingMessages());
+    }
+
+    @Test
+    public void timeout() {
+        StepVerifier.create(Mono.never().timeout(Duration.ofMinutes(5), scheduler))
+                .then(() -> scheduler.advanceTimeBy(Duration.ofMinutes(5)))
+                .expectError(TimeoutException.class)
+                .verify(Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void workerDisposeCancelsItsTasksOnly() {
+        AtomicInteger runs = new AtomicInteger();
+        Scheduler.Worker worker = scheduler.createWorker();
+        Scheduler.Worker other = scheduler.createWorker();
+        worker.schedule(runs::incrementAndGet, 10, TimeUnit.MILLISECONDS);
+        other.schedule(runs::incrementAndGet, 10, TimeUnit.MILLISECONDS);
+
+        worker.dispose();
+        scheduler.advanceTimeBy(Duration.ofSeconds(1));
+
+        assertEquals(1, runs.get());
+        assertTrue(worker.isDisposed());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void disposedSchedulerRejectsTasks() {
+        scheduler.dispose();
+
+        scheduler.schedule(() -> {});
+    }
+
+    @Test
+    public void disposeCancelsPendingTasks() {
+        AtomicInteger runs = new AtomicInteger();
+        scheduler.schedule(runs::incrementAndGet, 10, TimeUnit.MILLISECONDS);
+        scheduler.createWorker().schedule(runs::incrementAndGet);
+
+        scheduler.dispose();
+        scheduler.advanceTimeBy(Duration.ofSeconds(1));
+
+        assertEquals(0, runs.get());
+        assertTrue(scheduler.isDisposed());
+        assertEquals(0, scheduler.pendingMessages());
+    }
+}